@@ -28,6 +28,8 @@ import com.adobe.cq.commerce.core.components.models.retriever.AbstractProductRet
 
 import com.adobe.cq.commerce.magento.graphql.FilterRangeTypeInput;
 
+import com.venia.core.models.commerce.services.cacheinvalidation.RenderDependencies;
+
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.models.annotations.Model;
@@ -50,12 +52,21 @@ public class MyProductTeaserImpl implements MyProductTeaser {
     @ScriptVariable
     private ValueMap properties;
 
+    @Self
+    private SlingHttpServletRequest request;
+
     private AbstractProductRetriever productRetriever;
 
     @PostConstruct
     public void initModel() {
         productRetriever = productTeaser.getProductRetriever();
 
+        // Record the product of the teaser as a render dependency of the page
+        String selection = properties.get("selection", String.class);
+        if (productRetriever != null && selection != null) {
+            RenderDependencies.recordSku(request, CombinedSku.parse(selection).getBaseSku());
+        }
+
         if (productRetriever != null) {
             // Pass your custom partial query to the ProductRetriever. This class will
             // automatically take care of executing your query as soon
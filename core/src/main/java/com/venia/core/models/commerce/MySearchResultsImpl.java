@@ -25,8 +25,10 @@ import com.adobe.cq.wcm.core.components.models.Component;
 import com.adobe.cq.wcm.core.components.models.datalayer.ComponentData;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.commons.metrics.MetricsService;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.Via;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.Self;
 import org.apache.sling.models.annotations.via.ResourceSuperType;
 
@@ -34,6 +36,7 @@ import javax.annotation.PostConstruct;
 import java.lang.reflect.Proxy;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -42,25 +45,33 @@ import java.util.function.Function;
  * This class shows how to customize the sort fields of the product search results.
  * As am example we remove the support for sorting by position.
  * See the initModel() method for details.
+ * The model init time, the search latency and the number of results are recorded in the {@link MetricsService}.
  */
 @Model(adaptables = SlingHttpServletRequest.class, adapters = SearchResults.class, resourceType = MySearchResultsImpl.RESOURCE_TYPE)
 public class MySearchResultsImpl implements SearchResults , Component {
     protected static final String RESOURCE_TYPE = "venia/components/commerce/searchresults";
+    static final String METRIC_INIT = "venia.searchresults.init";
+    static final String METRIC_SEARCH = "venia.searchresults.search";
+    static final String METRIC_RESULTS = "venia.searchresults.results";
+
     @Self
     @Via(type = ResourceSuperType.class)
     SearchResults searchResults;
 
-    public MySearchResultsImpl() {
-        System.out.println("TEST");
-    }
+    @OSGiService
+    private MetricsService metricsService;
+
+    private SearchResultsSet searchResultsSet;
 
     @PostConstruct
     public void initModel() {
+        long start = System.nanoTime();
         // remove sort key with the name "position"
-        List<SorterKey> keys = searchResults.getSearchResultsSet().getSorter().getKeys();
+        List<SorterKey> keys = getSearchResultsSet().getSorter().getKeys();
         if (keys != null) {
             keys.removeIf(sorterKey -> sorterKey.getName().equals("position"));
         }
+        metricsService.timer(METRIC_INIT).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
     @Override
@@ -90,7 +101,16 @@ public class MySearchResultsImpl implements SearchResults , Component {
 
     @Override
     public SearchResultsSet getSearchResultsSet() {
-        return searchResults.getSearchResultsSet();
+        if (searchResultsSet == null) {
+            // the first call executes the search query
+            long start = System.nanoTime();
+            searchResultsSet = searchResults.getSearchResultsSet();
+            metricsService.timer(METRIC_SEARCH).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (searchResultsSet != null && searchResultsSet.getTotalResults() != null) {
+                metricsService.histogram(METRIC_RESULTS).update(searchResultsSet.getTotalResults());
+            }
+        }
+        return searchResultsSet;
     }
 
     @Override
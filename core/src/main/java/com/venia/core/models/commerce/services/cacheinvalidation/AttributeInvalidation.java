@@ -0,0 +1,252 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.DispatcherCacheInvalidationStrategy;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
+import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
+import com.adobe.cq.commerce.magento.graphql.FilterEqualTypeInput;
+import com.adobe.cq.commerce.magento.graphql.ProductAttributeFilterInput;
+import com.adobe.cq.commerce.magento.graphql.Products;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Strategy implementation for clearing the graphql and dispatcher cache based on the values of a product attribute, declared by
+ * a factory configuration instead of code.
+ *
+ * <p>Every configuration registers one invalidation type. For example, with the invalidation type {@code brands} and the field
+ * path {@code brand}, the request</p>
+ * <pre>
+ * {
+ *   "storePath": "/content/venia/us/en",
+ *   "brands": ["brand-1", "brand-2"]
+ * }
+ * </pre>
+ * <p>invalidates the cache entries whose {@code brand} field has one of the given values. Field paths of nested fields are
+ * separated by dots, for example {@code price_list.code}. The patterns are built by {@link IdentifierPattern}, which is shared
+ * with the built-in strategies.</p>
+ *
+ * <p>The dispatcher paths are resolved according to the configured {@link PathResolution}: not at all, from the products whose
+ * filter attribute has one of the values (like {@link CustomDispatcherInvalidation} does for SKUs), or as the entire store. If
+ * a chunk of values matches more products than are fetched or cannot be resolved, the entire store is invalidated.</p>
+ */
+@Component(
+        service = DispatcherCacheInvalidationStrategy.class,
+        configurationPolicy = ConfigurationPolicy.REQUIRE)
+@Designate(ocd = AttributeInvalidation.Configuration.class, factory = true)
+public class AttributeInvalidation implements DispatcherCacheInvalidationStrategy {
+
+    public enum PathResolution {
+        /** Only the GraphQL cache is invalidated. */
+        NONE,
+        /** The pages of the products that have one of the values and of their categories are invalidated. */
+        PRODUCTS,
+        /** The entire store is invalidated. */
+        STORE
+    }
+
+    @ObjectClassDefinition(name = "Venia Attribute Invalidation")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Invalidation type", description = "Name of the invalidation parameter, for example brands")
+        String invalidationType();
+
+        @AttributeDefinition(name = "Field path",
+                description = "Path of the JSON field that holds the values in cached GraphQL responses, for example brand or price_list.code")
+        String fieldPath();
+
+        @AttributeDefinition(name = "Path resolution", description = "How the dispatcher paths to invalidate are resolved")
+        PathResolution pathResolution() default PathResolution.NONE;
+
+        @AttributeDefinition(name = "Filter attribute",
+                description = "Product attribute to filter by when resolving product paths, defaults to the last segment of the field path")
+        String filterAttribute() default "";
+
+        @AttributeDefinition(name = "Max products",
+                description = "Maximum number of products fetched per chunk of values, the entire store is invalidated if more match")
+        int maxProducts() default 500;
+
+        @AttributeDefinition(name = "Chunk size", description = "Maximum number of values per invalidation pattern and path lookup")
+        int chunkSize() default InvalidationBatches.DEFAULT_CHUNK_SIZE;
+
+        @AttributeDefinition(name = "Parallelism", description = "Number of chunks whose dispatcher paths are resolved in parallel")
+        int parallelism() default 2;
+
+        String webconsole_configurationFactory_nameHint() default "{invalidationType}: {fieldPath}";
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttributeInvalidation.class);
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationAuditLog auditLog;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationDistributor distributor;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile DispatcherCacheWarmer cacheWarmer;
+
+    @Reference
+    private UrlProvider urlProvider;
+
+    private String invalidationType;
+    private String fieldRegex;
+    private PathResolution pathResolution;
+    private String filterAttribute;
+    private int maxProducts;
+    private int chunkSize;
+    private ExecutorService executor;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        if (StringUtils.isBlank(configuration.invalidationType())) {
+            throw new IllegalArgumentException("No invalidation type configured");
+        }
+        this.invalidationType = configuration.invalidationType().trim();
+        String fieldPath = StringUtils.trim(configuration.fieldPath());
+        this.fieldRegex = IdentifierPattern.fieldRegex(fieldPath);
+        this.pathResolution = configuration.pathResolution() != null ? configuration.pathResolution() : PathResolution.NONE;
+        this.filterAttribute = StringUtils.defaultIfBlank(configuration.filterAttribute(),
+                StringUtils.substringAfterLast("." + fieldPath, ".")).trim();
+        this.maxProducts = Math.max(1, configuration.maxProducts());
+        this.chunkSize = Math.max(1, configuration.chunkSize());
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, configuration.parallelism()),
+                runnable -> new Thread(runnable, "venia-attribute-invalidation-" + threads.incrementAndGet()));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<String> getPatterns(String[] invalidationParameters) {
+        List<String> patterns = InvalidationAuditLog.recordPatterns(auditLog, invalidationType, invalidationParameters,
+                () -> InvalidationBatches.patterns(fieldRegex, invalidationParameters, chunkSize));
+        InvalidationDistributor.publish(distributor, invalidationType, invalidationParameters, patterns);
+        return patterns;
+    }
+
+    @Override
+    public String getInvalidationType() {
+        return invalidationType;
+    }
+
+    @Override
+    public List<String> getPathsToInvalidate(CacheInvalidationContext context) {
+        List<String> values = context.getInvalidationParameters();
+        if (values == null || values.isEmpty() || pathResolution == PathResolution.NONE) {
+            return Collections.emptyList();
+        }
+        if (pathResolution == PathResolution.STORE) {
+            return context.getStorePath() != null ? Collections.singletonList(context.getStorePath()) : Collections.emptyList();
+        }
+
+        InvalidationAuditLog.Record record = InvalidationAuditLog.start(invalidationType, InvalidationAuditLog.OPERATION_PATHS,
+                context.getStorePath(), values.size());
+        List<String> paths = Collections.emptyList();
+        try {
+            paths = resolveChunks(context, values, record);
+        } finally {
+            record.setPaths(paths.size());
+            InvalidationAuditLog.finish(auditLog, record);
+        }
+        DispatcherCacheWarmer warmer = cacheWarmer;
+        if (warmer != null) {
+            warmer.warm(paths);
+        }
+        return paths;
+    }
+
+    private List<String> resolveChunks(CacheInvalidationContext context, List<String> values, InvalidationAuditLog.Record record) {
+        List<List<String>> chunks = InvalidationBatches.partition(values, chunkSize);
+        List<String> paths;
+        try {
+            paths = InvalidationBatches.resolve(chunks, chunk -> resolvePaths(context, chunk, record), executor,
+                    InvalidationBatches.DEFAULT_TIMEOUT_MILLIS);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to resolve the product pages of {} values of {}, invalidating {}: {}", values.size(),
+                    invalidationType, context.getStorePath(), e.getMessage());
+            paths = context.getStorePath() != null ? Collections.singletonList(context.getStorePath()) : Collections.emptyList();
+        }
+        if (context.getStorePath() != null && paths.contains(context.getStorePath())) {
+            paths = Collections.singletonList(context.getStorePath());
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the dispatcher paths of the products that have one of the given values, or the store path if there are more
+     * products than are fetched. The products are fetched in pages of at most {@link ProductPaths#MAX_PAGE_SIZE}.
+     *
+     * @throws IllegalStateException if a page of products cannot be fetched
+     */
+    private List<String> resolvePaths(CacheInvalidationContext context, List<String> values, InvalidationAuditLog.Record record) {
+        ProductAttributeFilterInput filter = new ProductAttributeFilterInput()
+                .setCustomFilter(filterAttribute, new FilterEqualTypeInput().setIn(values));
+        int pageSize = Math.min(maxProducts, ProductPaths.MAX_PAGE_SIZE);
+        Set<String> paths = new LinkedHashSet<>();
+        for (int currentPage = 1;; currentPage++) {
+            String query = ProductPaths.buildQuery(filter, pageSize, currentPage);
+            Products products = record.countGraphqlRequest(() -> fetchProducts(context, query));
+            int totalCount = products.getTotalCount() != null ? products.getTotalCount() : 0;
+            if (totalCount > maxProducts && context.getStorePath() != null) {
+                LOGGER.info("{} values of {} match {} products, more than {}, invalidating {}", values.size(), invalidationType,
+                        totalCount, maxProducts, context.getStorePath());
+                return Collections.singletonList(context.getStorePath());
+            }
+            paths.addAll(ProductPaths.resolve(new Query().setProducts(products), context.getPage(), urlProvider));
+            int items = products.getItems() != null ? products.getItems().size() : 0;
+            if (items < pageSize || (long) currentPage * pageSize >= Math.min(totalCount, maxProducts)) {
+                return new ArrayList<>(paths);
+            }
+        }
+    }
+
+    private static Products fetchProducts(CacheInvalidationContext context, String query) {
+        GraphqlResponse<Query, Error> response = context.getGraphqlClient().execute(query);
+        Query data = response != null && (response.getErrors() == null || response.getErrors().isEmpty()) ? response.getData() : null;
+        if (data == null || data.getProducts() == null) {
+            throw new IllegalStateException("Failed to fetch the products");
+        }
+        return data.getProducts();
+    }
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.magento.graphql.CategoryTree;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * This service keeps the levels of the categories seen by {@link ExtendedCategoryUidInvalidation} and the navigation structure
+ * depth of the header experience fragments in memory, so that many invalidation decisions need neither a GraphQL request nor a
+ * repository read.
+ *
+ * <p>A cached level only proves that a category was part of the navigation. Categories may move in the catalog, so a category
+ * is never assumed to be outside of the navigation from its cached level, it is fetched again. The level of an invalidated
+ * category is used for the invalidation once and then evicted, and all levels expire after a configurable time. The most
+ * recently used {@value #MAX_CATEGORIES_PER_STORE} categories are kept per store.</p>
+ *
+ * <p>The header experience fragment of each store and the structure depths are dropped when anything below
+ * {@code /content/experience-fragments} or {@code /conf} (the page templates) changes.</p>
+ *
+ * <p>Nothing is stored during a {@link DryRun}, the levels, depths and paths are only read.</p>
+ */
+@Component(
+        service = { CategoryLevelCache.class, ResourceChangeListener.class },
+        property = {
+                ResourceChangeListener.PATHS + "=" + CategoryLevelCache.EXPERIENCE_FRAGMENTS_ROOT,
+                ResourceChangeListener.PATHS + "=" + CategoryLevelCache.CONF_ROOT
+        })
+@Designate(ocd = CategoryLevelCache.Configuration.class)
+public class CategoryLevelCache implements ResourceChangeListener {
+
+    @ObjectClassDefinition(name = "Venia Category Level Cache")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Level TTL", description = "Time in seconds after which a cached category level expires")
+        long levelTtlSeconds() default DEFAULT_LEVEL_TTL_SECONDS;
+    }
+
+    static final String EXPERIENCE_FRAGMENTS_ROOT = "/content/experience-fragments";
+    static final String CONF_ROOT = "/conf";
+    static final int MAX_CATEGORIES_PER_STORE = 10000;
+    static final long DEFAULT_LEVEL_TTL_SECONDS = 3600;
+
+    private final Map<String, Map<String, Level>> levelsByStore = new ConcurrentHashMap<>();
+    private final Map<String, Integer> structureDepths = new ConcurrentHashMap<>();
+    private final Map<String, String> headerFragmentPaths = new ConcurrentHashMap<>();
+    private long levelTtlMillis = TimeUnit.SECONDS.toMillis(DEFAULT_LEVEL_TTL_SECONDS);
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        this.levelTtlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, configuration.levelTtlSeconds()));
+    }
+
+    /**
+     * Returns true if any of the given categories is known to have been within the given level. False means that this cannot be
+     * decided from the cached levels.
+     */
+    public boolean isAnyWithinLevel(String store, Collection<String> uids, int maxLevel) {
+        Map<String, Level> levels = levelsByStore.get(Objects.toString(store, ""));
+        if (levels == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (levels) {
+            for (String uid : uids) {
+                Level level = levels.get(uid);
+                if (level == null) {
+                    continue;
+                }
+                if (level.expires <= now) {
+                    levels.remove(uid);
+                } else if (level.level <= maxLevel) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the levels of the given categories, for example because they were invalidated and may have moved.
+     */
+    public void evict(String store, Collection<String> uids) {
+        Map<String, Level> levels = levelsByStore.get(Objects.toString(store, ""));
+        if (levels == null || DryRun.isActive()) {
+            return;
+        }
+        synchronized (levels) {
+            levels.keySet().removeAll(uids);
+        }
+    }
+
+    /**
+     * Stores the levels of the given categories and of their fetched children.
+     */
+    public void update(String store, List<CategoryTree> categories) {
+        if (categories == null || DryRun.isActive()) {
+            return;
+        }
+        Map<String, Level> levels = levelsByStore.computeIfAbsent(Objects.toString(store, ""), key -> newLevels());
+        long expires = System.currentTimeMillis() + levelTtlMillis;
+        synchronized (levels) {
+            for (CategoryTree category : categories) {
+                update(levels, category, null, expires);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached structure depth of the given navigation resource, loading it on a miss. Missing depths are not cached.
+     */
+    public Integer getStructureDepth(String navigationPath, Function<String, Integer> loader) {
+        Integer depth = structureDepths.get(navigationPath);
+        if (depth == null) {
+            depth = loader.apply(navigationPath);
+            if (depth != null && !DryRun.isActive()) {
+                structureDepths.put(navigationPath, depth);
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the cached header experience fragment path of the given store, resolving it on a miss.
+     */
+    public String getHeaderFragmentPath(String store, Function<String, String> resolver) {
+        String key = Objects.toString(store, "");
+        String path = headerFragmentPaths.get(key);
+        if (path == null) {
+            path = resolver.apply(store);
+            if (path != null && !DryRun.isActive()) {
+                headerFragmentPaths.put(key, path);
+            }
+        }
+        return path;
+    }
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        headerFragmentPaths.clear();
+        structureDepths.clear();
+    }
+
+    private static void update(Map<String, Level> levels, CategoryTree category, Integer parentLevel, long expires) {
+        if (category.getUid() == null) {
+            return;
+        }
+        Integer level = category.getLevel() != null ? category.getLevel() : parentLevel != null ? Integer.valueOf(parentLevel + 1) : null;
+        if (level != null) {
+            levels.put(category.getUid().toString(), new Level(level, expires));
+        }
+        if (category.getChildren() != null) {
+            for (CategoryTree child : category.getChildren()) {
+                update(levels, child, level, expires);
+            }
+        }
+    }
+
+    private static Map<String, Level> newLevels() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, Level>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Level> eldest) {
+                return size() > MAX_CATEGORIES_PER_STORE;
+            }
+        });
+    }
+
+    private static final class Level {
+        private final int level;
+        private final long expires;
+
+        private Level(int level, long expires) {
+            this.level = level;
+            this.expires = expires;
+        }
+    }
+}
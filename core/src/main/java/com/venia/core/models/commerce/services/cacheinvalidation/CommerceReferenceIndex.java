@@ -0,0 +1,613 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.api.NameConstants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reverse index from SKUs and category UIDs to the AEM pages that reference them, used by the Venia dispatcher invalidation
+ * strategies to flush exactly the pages that show invalidated commerce data. It holds two kinds of references:
+ *
+ * <ul>
+ * <li>Content references are read from component properties, for example the {@code selection} of product teasers, the
+ * {@code product} list of product carousels or the {@code categoryId} of category carousel items. They are keyed by page path
+ * and built incrementally from resource change events: the page of every changed resource is read again with a service user
+ * and its references replace the indexed ones. Pages are only removed from the index with their descendants once the resource
+ * of the change does not exist anymore, a change of a folder without content only removes the references of the folder itself.
+ * When the service is activated, the persisted index is loaded and the configured roots are crawled again in the background, so
+ * that changes made while the service was not active are picked up. The configured excluded paths, by default the assets below
+ * {@code /content/dam}, are neither crawled nor observed.</li>
+ * <li>Rendered references are recorded by the {@link com.venia.core.models.commerce.servlets.RenderDependencyFilter} while a
+ * page is rendered, from the SKUs and category UIDs fetched by the retrievers of its components. They are keyed by the request
+ * path including selectors and suffix, for example {@code /content/venia/us/en/products/category-page.html/men.html}, and
+ * replaced by every render. The number of rendered paths is bounded, the least recently rendered ones are dropped first.</li>
+ * </ul>
+ *
+ * <p>Both are persisted to a file in the bundle data area, so that they survive restarts.</p>
+ */
+@Component(
+        service = { CommerceReferenceIndex.class, ResourceChangeListener.class },
+        property = {
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        })
+@Designate(ocd = CommerceReferenceIndex.Configuration.class)
+public class CommerceReferenceIndex implements ResourceChangeListener {
+
+    @ObjectClassDefinition(name = "Venia Commerce Reference Index")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Paths", description = "Content roots whose pages are indexed")
+        String[] resource_paths() default { "/content" };
+
+        @AttributeDefinition(name = "Excluded paths", description = "Paths below the content roots that are not indexed")
+        String[] excludedPaths() default { "/content/dam" };
+
+        @AttributeDefinition(name = "SKU properties", description = "Component properties that hold SKUs")
+        String[] skuProperties() default { "selection", "product", "productSku" };
+
+        @AttributeDefinition(name = "Category properties", description = "Component properties that hold category UIDs")
+        String[] categoryProperties() default { "categoryId", "category" };
+
+        @AttributeDefinition(name = "Max rendered paths", description = "Maximum number of request paths with recorded render dependencies")
+        int maxRenderedPaths() default 100000;
+
+        @AttributeDefinition(name = "Save delay", description = "Time in seconds after which changes of the index are persisted")
+        long saveDelaySeconds() default 30;
+    }
+
+    static final String SUBSERVICE = "commerce-references";
+    static final String DATA_FILE = "commerce-reference-index.json";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommerceReferenceIndex.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String JCR_CONTENT_SEGMENT = "/" + JcrConstants.JCR_CONTENT;
+    private static final Set<String> CONTAINER_TYPES = new HashSet<>(Arrays.asList(NameConstants.NT_PAGE, "sling:Folder",
+            "sling:OrderedFolder", JcrConstants.NT_FOLDER));
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_RENDERED = "rendered";
+    private static final String FIELD_SKUS = "skus";
+    private static final String FIELD_CATEGORIES = "categories";
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    private final ReferenceMap contentReferences = new ReferenceMap(Integer.MAX_VALUE);
+    private ReferenceMap renderedReferences = new ReferenceMap(Integer.MAX_VALUE);
+    private final Set<String> pendingPages = new LinkedHashSet<>();
+    private List<String> roots = Collections.emptyList();
+    private List<String> excludedPaths = Collections.emptyList();
+    private final List<Set<String>> runningRebuilds = new ArrayList<>();
+    private Set<String> skuProperties = Collections.emptySet();
+    private Set<String> categoryProperties = Collections.emptySet();
+    private File dataFile;
+    private boolean dirty;
+    private ScheduledExecutorService executor;
+
+    @Activate
+    protected void activate(BundleContext bundleContext, Configuration configuration) {
+        this.roots = Arrays.asList(configuration.resource_paths());
+        this.excludedPaths = Arrays.asList(configuration.excludedPaths());
+        this.skuProperties = new HashSet<>(Arrays.asList(configuration.skuProperties()));
+        this.categoryProperties = new HashSet<>(Arrays.asList(configuration.categoryProperties()));
+        this.renderedReferences = new ReferenceMap(Math.max(1, configuration.maxRenderedPaths()));
+        this.dataFile = bundleContext.getDataFile(DATA_FILE);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "venia-commerce-reference-index"));
+        long saveDelay = Math.max(1, configuration.saveDelaySeconds());
+        executor.scheduleWithFixedDelay(this::save, saveDelay, saveDelay, TimeUnit.SECONDS);
+        // the persisted index serves the lookups until the crawl replaces it, content may have changed while not active
+        load();
+        executor.execute(this::rebuild);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdownNow();
+        save();
+    }
+
+    /**
+     * Returns the paths of the pages whose content references any of the given SKUs.
+     */
+    public synchronized Set<String> getPagesForSkus(Collection<String> skus) {
+        return contentReferences.getPathsForSkus(skus);
+    }
+
+    /**
+     * Returns the paths of the pages whose content references any of the given category UIDs.
+     */
+    public synchronized Set<String> getPagesForCategories(Collection<String> uids) {
+        return contentReferences.getPathsForCategories(uids);
+    }
+
+    /**
+     * Returns the request paths that fetched any of the given SKUs when they were rendered.
+     */
+    public synchronized Set<String> getRenderedPathsForSkus(Collection<String> skus) {
+        return renderedReferences.getPathsForSkus(skus);
+    }
+
+    /**
+     * Returns the request paths that fetched any of the given category UIDs when they were rendered.
+     */
+    public synchronized Set<String> getRenderedPathsForCategories(Collection<String> uids) {
+        return renderedReferences.getPathsForCategories(uids);
+    }
+
+    /**
+     * Replaces the render dependencies of the given request path.
+     */
+    public void recordRendered(String requestPath, Collection<String> skus, Collection<String> uids) {
+        References references = new References();
+        references.skus.addAll(skus);
+        references.categories.addAll(uids);
+        synchronized (this) {
+            renderedReferences.put(requestPath, references);
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return contentReferences.size();
+    }
+
+    public synchronized int renderedSize() {
+        return renderedReferences.size();
+    }
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        boolean schedule;
+        synchronized (pendingPages) {
+            schedule = pendingPages.isEmpty();
+            for (ResourceChange change : changes) {
+                if (!isExcluded(change.getPath())) {
+                    pendingPages.add(getPagePath(change.getPath()));
+                }
+            }
+            schedule &= !pendingPages.isEmpty();
+        }
+        if (schedule) {
+            executor.execute(this::reindexPending);
+        }
+    }
+
+    /**
+     * Reads the references of all pages below the configured roots and replaces the content references. Pages that are indexed
+     * again while the roots are crawled keep their newer references.
+     */
+    void rebuild() {
+        Set<String> reindexed = new HashSet<>();
+        synchronized (this) {
+            runningRebuilds.add(reindexed);
+        }
+        try (ResourceResolver resolver = getServiceResourceResolver()) {
+            Map<String, References> crawled = new HashMap<>();
+            for (String root : roots) {
+                Resource resource = resolver.getResource(root);
+                if (resource != null) {
+                    crawl(resource, crawled);
+                }
+            }
+            synchronized (this) {
+                for (String page : new ArrayList<>(contentReferences.referencesByPath.keySet())) {
+                    if (!crawled.containsKey(page) && !isReindexed(reindexed, page)) {
+                        contentReferences.remove(page);
+                    }
+                }
+                crawled.forEach((page, references) -> {
+                    if (!isReindexed(reindexed, page)) {
+                        contentReferences.put(page, references);
+                    }
+                });
+                dirty = true;
+            }
+            LOGGER.info("Built commerce reference index of {} pages", crawled.size());
+        } catch (LoginException e) {
+            LOGGER.error("Failed to build the commerce reference index: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                runningRebuilds.remove(reindexed);
+            }
+        }
+    }
+
+    /**
+     * Reads the references of the pages with pending changes again. Removed pages are dropped with their descendants and their
+     * render dependencies.
+     */
+    void reindexPending() {
+        List<String> pages;
+        synchronized (pendingPages) {
+            pages = new ArrayList<>(pendingPages);
+            pendingPages.clear();
+        }
+        if (pages.isEmpty()) {
+            return;
+        }
+        try (ResourceResolver resolver = getServiceResourceResolver()) {
+            for (String page : pages) {
+                Resource content = resolver.getResource(page + JCR_CONTENT_SEGMENT);
+                References references = content != null ? collect(content) : null;
+                boolean removed = content == null && resolver.getResource(page) == null;
+                synchronized (this) {
+                    for (Set<String> reindexed : runningRebuilds) {
+                        reindexed.add(removed ? page + "/" : page);
+                    }
+                    if (removed) {
+                        contentReferences.removeTree(page);
+                        renderedReferences.removeTree(page);
+                    } else {
+                        // a folder or a page without content has no references, its descendants are not changed
+                        contentReferences.put(page, references != null ? references : new References());
+                    }
+                    dirty = true;
+                }
+            }
+        } catch (LoginException e) {
+            LOGGER.error("Failed to update the commerce reference index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the index to the bundle data file, if it changed since the last save.
+     */
+    void save() {
+        Map<String, References> content;
+        Map<String, References> rendered;
+        synchronized (this) {
+            if (!dirty || dataFile == null) {
+                return;
+            }
+            content = new LinkedHashMap<>(contentReferences.referencesByPath);
+            rendered = new LinkedHashMap<>(renderedReferences.referencesByPath);
+            dirty = false;
+        }
+        File temp = new File(dataFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(temp.toPath()), StandardCharsets.UTF_8);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            writeReferences(generator, FIELD_CONTENT, content);
+            writeReferences(generator, FIELD_RENDERED, rendered);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save the commerce reference index: {}", e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save the commerce reference index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the index from the bundle data file. Returns false if there is no such file or it cannot be read.
+     */
+    boolean load() {
+        if (dataFile == null || !dataFile.isFile()) {
+            return false;
+        }
+        Map<String, References> content = new LinkedHashMap<>();
+        Map<String, References> rendered = new LinkedHashMap<>();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(dataFile.toPath()), StandardCharsets.UTF_8);
+             JsonParser parser = JSON_FACTORY.createParser(reader)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.getCurrentName();
+                parser.nextToken();
+                if (FIELD_CONTENT.equals(section)) {
+                    readReferences(parser, content);
+                } else if (FIELD_RENDERED.equals(section)) {
+                    readReferences(parser, rendered);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to load the commerce reference index, rebuilding it: {}", e.getMessage());
+            return false;
+        }
+        synchronized (this) {
+            content.forEach(contentReferences::put);
+            rendered.forEach(renderedReferences::put);
+        }
+        LOGGER.debug("Loaded commerce reference index of {} pages and {} rendered paths", content.size(), rendered.size());
+        return true;
+    }
+
+    private ResourceResolver getServiceResourceResolver() throws LoginException {
+        return resourceResolverFactory.getServiceResourceResolver(
+                Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE));
+    }
+
+    /**
+     * Returns true if the given page was indexed again during a rebuild, or if it or one of its ancestors was removed. Removed
+     * pages are in the given set with a trailing slash.
+     */
+    private static boolean isReindexed(Set<String> reindexed, String page) {
+        if (reindexed.contains(page)) {
+            return true;
+        }
+        for (String path = page; path.lastIndexOf('/') > 0; path = path.substring(0, path.lastIndexOf('/'))) {
+            if (reindexed.contains(path + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExcluded(String path) {
+        for (String excluded : excludedPaths) {
+            if (path.equals(excluded) || path.startsWith(excluded + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void crawl(Resource resource, Map<String, References> crawled) {
+        if (isExcluded(resource.getPath())) {
+            return;
+        }
+        for (Resource child : resource.getChildren()) {
+            if (JcrConstants.JCR_CONTENT.equals(child.getName())) {
+                References references = collect(child);
+                if (!references.isEmpty()) {
+                    crawled.put(resource.getPath(), references);
+                }
+            } else if (CONTAINER_TYPES.contains(child.getValueMap().get(JcrConstants.JCR_PRIMARYTYPE, String.class))) {
+                crawl(child, crawled);
+            }
+        }
+    }
+
+    private References collect(Resource content) {
+        References references = new References();
+        collect(content, references);
+        return references;
+    }
+
+    private void collect(Resource resource, References references) {
+        ValueMap properties = resource.getValueMap();
+        for (String name : skuProperties) {
+            addValues(properties, name, references.skus);
+        }
+        for (String name : categoryProperties) {
+            addValues(properties, name, references.categories);
+        }
+        for (Resource child : resource.getChildren()) {
+            collect(child, references);
+        }
+    }
+
+    private static void addValues(ValueMap properties, String name, Set<String> target) {
+        String[] values = properties.get(name, String[].class);
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isEmpty()) {
+                    target.add(value);
+                }
+            }
+        }
+    }
+
+    private static void writeReferences(JsonGenerator generator, String field, Map<String, References> references)
+            throws IOException {
+        generator.writeObjectFieldStart(field);
+        for (Map.Entry<String, References> entry : references.entrySet()) {
+            generator.writeObjectFieldStart(entry.getKey());
+            writeArray(generator, FIELD_SKUS, entry.getValue().skus);
+            writeArray(generator, FIELD_CATEGORIES, entry.getValue().categories);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeArray(JsonGenerator generator, String field, Set<String> values) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void readReferences(JsonParser parser, Map<String, References> target) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = parser.getCurrentName();
+            References references = new References();
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                Set<String> values = FIELD_SKUS.equals(field) ? references.skus : references.categories;
+                while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                    values.add(parser.getText());
+                }
+            }
+            target.put(path, references);
+        }
+    }
+
+    static String getPagePath(String path) {
+        int index = path.indexOf(JCR_CONTENT_SEGMENT + "/");
+        if (index < 0 && path.endsWith(JCR_CONTENT_SEGMENT)) {
+            index = path.length() - JCR_CONTENT_SEGMENT.length();
+        }
+        return index > 0 ? path.substring(0, index) : path;
+    }
+
+    private static final class References {
+        private final Set<String> skus = new LinkedHashSet<>();
+        private final Set<String> categories = new LinkedHashSet<>();
+
+        boolean isEmpty() {
+            return skus.isEmpty() && categories.isEmpty();
+        }
+    }
+
+    /**
+     * References keyed by path with the reverse maps from SKUs and category UIDs to the paths, bounded to the given number of
+     * paths in the order of their last update.
+     */
+    private static final class ReferenceMap {
+        private final Map<String, References> referencesByPath;
+        private final Map<String, Set<String>> pathsBySku = new HashMap<>();
+        private final Map<String, Set<String>> pathsByCategory = new HashMap<>();
+
+        ReferenceMap(int maxPaths) {
+            this.referencesByPath = new LinkedHashMap<String, References>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, References> eldest) {
+                    if (size() > maxPaths) {
+                        removeReverse(eldest.getKey(), eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        int size() {
+            return referencesByPath.size();
+        }
+
+        void clear() {
+            referencesByPath.clear();
+            pathsBySku.clear();
+            pathsByCategory.clear();
+        }
+
+        void put(String path, References references) {
+            remove(path);
+            if (references.isEmpty()) {
+                return;
+            }
+            referencesByPath.put(path, references);
+            references.skus.forEach(sku -> pathsBySku.computeIfAbsent(sku, key -> new HashSet<>()).add(path));
+            references.categories.forEach(uid -> pathsByCategory.computeIfAbsent(uid, key -> new HashSet<>()).add(path));
+        }
+
+        void remove(String path) {
+            References existing = referencesByPath.remove(path);
+            if (existing != null) {
+                removeReverse(path, existing);
+            }
+        }
+
+        /**
+         * Removes the given page, its descendants and the request paths of the page with selectors, extension or suffix.
+         */
+        void removeTree(String page) {
+            List<String> paths = new ArrayList<>();
+            for (String path : referencesByPath.keySet()) {
+                if (path.equals(page) || path.startsWith(page + "/") || path.startsWith(page + ".")) {
+                    paths.add(path);
+                }
+            }
+            paths.forEach(this::remove);
+        }
+
+        Set<String> getPathsForSkus(Collection<String> skus) {
+            return lookup(pathsBySku, skus);
+        }
+
+        Set<String> getPathsForCategories(Collection<String> uids) {
+            return lookup(pathsByCategory, uids);
+        }
+
+        private static Set<String> lookup(Map<String, Set<String>> reverse, Collection<String> identifiers) {
+            if (identifiers == null) {
+                return Collections.emptySet();
+            }
+            Set<String> paths = new TreeSet<>();
+            for (String identifier : identifiers) {
+                Set<String> referencing = reverse.get(identifier);
+                if (referencing != null) {
+                    paths.addAll(referencing);
+                }
+            }
+            return paths;
+        }
+
+        private void removeReverse(String path, References references) {
+            references.skus.forEach(sku -> removeReverse(pathsBySku, sku, path));
+            references.categories.forEach(uid -> removeReverse(pathsByCategory, uid, path));
+        }
+
+        private static void removeReverse(Map<String, Set<String>> reverse, String identifier, String path) {
+            Set<String> paths = reverse.get(identifier);
+            if (paths != null) {
+                paths.remove(path);
+                if (paths.isEmpty()) {
+                    reverse.remove(identifier);
+                }
+            }
+        }
+    }
+}
@@ -16,8 +16,30 @@ package com.venia.core.models.commerce.services.cacheinvalidation;
 
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.DispatcherCacheInvalidationStrategy;
+import com.adobe.cq.commerce.core.components.client.MagentoGraphqlClient;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
+import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
+import com.adobe.cq.commerce.magento.graphql.FilterEqualTypeInput;
+import com.adobe.cq.commerce.magento.graphql.ProductAttributeFilterInput;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Strategy implementation for clearing the dispatcher and graphql cache based on custom attribute.
@@ -31,17 +53,72 @@ import java.util.*;
  * </pre>
  * 
  * <p>This will invalidate the cache for products with the specified SKUs.</p>
+ *
+ * <p>Large requests are processed in chunks of SKUs: every chunk becomes one pattern, and the dispatcher paths of the chunks
+ * are resolved in parallel and deduplicated.</p>
+ *
+ * <p>The products of a chunk are fetched with one GraphQL query. The paths to invalidate are the product page URLs for the
+ * url_key and every url_rewrite of a product plus the category page URLs of its categories, as built by the {@link UrlProvider}.
+ * The CIF core maps these to the dispatcher files with the {@code dispatcherUrlPathConfiguration} patterns. Content pages that
+ * reference one of the SKUs and pages that fetched one of them when they were rendered are looked up in the
+ * {@link CommerceReferenceIndex} and invalidated as well. If the products of a chunk cannot be fetched, or not all chunks are
+ * resolved within a minute, the entire store is invalidated instead.</p>
  */
 @Component(
         service = DispatcherCacheInvalidationStrategy.class)
+@Designate(ocd = CustomDispatcherInvalidation.Configuration.class)
 public class CustomDispatcherInvalidation implements DispatcherCacheInvalidationStrategy {
 
+    @ObjectClassDefinition(name = "Venia Custom Dispatcher Invalidation")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Chunk size", description = "Maximum number of SKUs per invalidation pattern and path lookup")
+        int chunkSize() default InvalidationBatches.DEFAULT_CHUNK_SIZE;
+
+        @AttributeDefinition(name = "Parallelism", description = "Number of chunks whose dispatcher paths are resolved in parallel")
+        int parallelism() default 4;
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomDispatcherInvalidation.class);
+
+    private int chunkSize = InvalidationBatches.DEFAULT_CHUNK_SIZE;
+    private ExecutorService executor;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationAuditLog auditLog;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationDistributor distributor;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile DispatcherCacheWarmer cacheWarmer;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile CommerceReferenceIndex referenceIndex;
+
+    @Reference
+    private UrlProvider urlProvider;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        this.chunkSize = Math.max(1, configuration.chunkSize());
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, configuration.parallelism()),
+                runnable -> new Thread(runnable, "venia-dispatcher-invalidation-" + threads.incrementAndGet()));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdownNow();
+    }
+
     // Note: If we are passing null value then it will not clear graphql cache
     @Override
     public List<String> getPatterns(String[] invalidationParameters) {
-        String pattern = "\"sku\":\\s*\"";
-        String invalidationParametersString = String.join("|", invalidationParameters);
-        return Collections.singletonList(pattern + "(" + invalidationParametersString + ")");
+        List<String> patterns = InvalidationAuditLog.recordPatterns(auditLog, getInvalidationType(), invalidationParameters,
+                () -> InvalidationBatches.patterns(IdentifierPattern.SKU_FIELD, invalidationParameters, chunkSize));
+        InvalidationDistributor.publish(distributor, getInvalidationType(), invalidationParameters, patterns);
+        return patterns;
     }
 
     @Override
@@ -51,9 +128,73 @@ public class CustomDispatcherInvalidation implements DispatcherCacheInvalidation
 
     @Override
     public List<String> getPathsToInvalidate(CacheInvalidationContext context) {
+        List<String> skus = context.getInvalidationParameters();
+        InvalidationAuditLog.Record record = InvalidationAuditLog.start(getInvalidationType(), InvalidationAuditLog.OPERATION_PATHS,
+                context.getStorePath(), skus != null ? skus.size() : 0);
+        List<String> paths = Collections.emptyList();
+        try {
+            paths = resolveChunks(context, skus, record);
+        } finally {
+            record.setPaths(paths.size());
+            InvalidationAuditLog.finish(auditLog, record);
+        }
+        DispatcherCacheWarmer warmer = cacheWarmer;
+        if (warmer != null) {
+            warmer.warm(paths);
+        }
+        return paths;
+    }
+
+    private List<String> resolveChunks(CacheInvalidationContext context, List<String> skus, InvalidationAuditLog.Record record) {
+        // a chunk must fit into one page of the product search
+        List<List<String>> chunks = InvalidationBatches.partition(skus, Math.min(chunkSize, ProductPaths.MAX_PAGE_SIZE));
+        try {
+            // every chunk is resolved with one GraphQL request
+            List<String> paths = InvalidationBatches.resolve(chunks, chunk -> record.countGraphqlRequest(() -> resolvePaths(context, chunk)),
+                    executor, InvalidationBatches.DEFAULT_TIMEOUT_MILLIS);
+            return addReferencingPages(paths, skus);
+        } catch (RuntimeException e) {
+            // pages of the products that could not be resolved must not stay cached, flush the entire store instead
+            LOGGER.warn("Failed to resolve the product pages of {} SKUs, invalidating {}: {}", skus.size(), context.getStorePath(),
+                    e.getMessage());
+            return context.getStorePath() != null ? Collections.singletonList(context.getStorePath()) : Collections.emptyList();
+        }
+    }
 
-        // Add you custom logic to get the corresponding paths to be invalidated
-        return Collections.emptyList();
+    /**
+     * Returns the dispatcher paths to be invalidated for one chunk of SKUs.
+     */
+    protected List<String> resolvePaths(CacheInvalidationContext context, List<String> skus) {
+        ProductAttributeFilterInput filter = new ProductAttributeFilterInput().setSku(new FilterEqualTypeInput().setIn(skus));
+        Query data = getGraphqlResponseData(context.getGraphqlClient(), ProductPaths.buildQuery(filter, skus.size(), 1));
+        if (data == null) {
+            throw new IllegalStateException("Failed to fetch the products of " + skus.size() + " SKUs");
+        }
+        return ProductPaths.resolve(data, context.getPage(), urlProvider);
     }
 
+    /**
+     * Adds the content pages that reference any of the given SKUs, for example in product teasers, and the request paths that
+     * fetched any of them when they were rendered to the given paths.
+     */
+    private List<String> addReferencingPages(List<String> paths, List<String> skus) {
+        CommerceReferenceIndex index = referenceIndex;
+        if (index == null || skus == null || skus.isEmpty()) {
+            return paths;
+        }
+        Set<String> result = new LinkedHashSet<>(paths);
+        for (String page : index.getPagesForSkus(skus)) {
+            result.add(page + ".html");
+        }
+        result.addAll(index.getRenderedPathsForSkus(skus));
+        return new ArrayList<>(result);
+    }
+
+    protected Query getGraphqlResponseData(MagentoGraphqlClient client, String query) {
+        GraphqlResponse<Query, Error> response = client.execute(query);
+        if (response == null || (response.getErrors() != null && !response.getErrors().isEmpty()) || response.getData() == null) {
+            return null;
+        }
+        return response.getData();
+    }
 }
@@ -16,8 +16,11 @@ package com.venia.core.models.commerce.services.cacheinvalidation;
 
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationStrategy;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -37,11 +40,19 @@ import java.util.List;
         service = CacheInvalidationStrategy.class)
 public class CustomInvalidation implements CacheInvalidationStrategy {
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationAuditLog auditLog;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationDistributor distributor;
+
     @Override
     public List<String> getPatterns(String[] invalidationParameters) {
-        String pattern = "\"uids\"\\s*:\\s*\\{\"id\"\\s*:\\s*\"";
-        String invalidationParametersString = String.join("|", invalidationParameters);
-        return Collections.singletonList(pattern + "(" + invalidationParametersString + ")");
+        List<String> patterns = InvalidationAuditLog.recordPatterns(auditLog, getInvalidationType(), invalidationParameters,
+                () -> InvalidationBatches.patterns(IdentifierPattern.CATEGORY_UID_FIELD, invalidationParameters,
+                        InvalidationBatches.DEFAULT_CHUNK_SIZE));
+        InvalidationDistributor.publish(distributor, getInvalidationType(), invalidationParameters, patterns);
+        return patterns;
     }
 
     @Override
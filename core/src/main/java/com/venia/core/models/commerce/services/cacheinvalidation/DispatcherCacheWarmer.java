@@ -0,0 +1,334 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * This service warms the dispatcher and GraphQL caches again after a targeted invalidation. The Venia dispatcher invalidation
+ * strategies hand over the page URLs they invalidate. After a delay, which gives the CIF core time to flush the dispatcher,
+ * the pages are requested through the dispatcher with a limited rate, so that they are rendered and cached before shoppers
+ * request them.
+ *
+ * <p>The CIF core flushes the dispatcher after the strategies return, without notifying them, so the timing is best effort: a
+ * page whose response is older than its invalidation ({@code Last-Modified}) is still served from before the flush and is
+ * requested again after another delay, up to the configured number of attempts. If the flush failed, the attempts only hit
+ * the stale cached copy and the page is given up.</p>
+ *
+ * <p>The dispatcher URL is the {@code dispatcherBaseUrl} of the CIF {@code InvalidateCacheSupport} configuration unless it is
+ * configured here. The paths are mapped with its {@code dispatcherUrlPathConfiguration} patterns like the CIF core does when it
+ * flushes them, so that the public URLs are requested. Only paths with an extension are requested, store roots of full store
+ * invalidations and experience fragment paths are skipped. Warming is disabled by default.</p>
+ */
+@Component(service = DispatcherCacheWarmer.class)
+@Designate(ocd = DispatcherCacheWarmer.Configuration.class)
+public class DispatcherCacheWarmer {
+
+    @ObjectClassDefinition(name = "Venia Dispatcher Cache Warmer")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled", description = "Request the invalidated pages again through the dispatcher")
+        boolean enabled() default false;
+
+        @AttributeDefinition(name = "Dispatcher base URL",
+                description = "URL of the dispatcher, defaults to the dispatcherBaseUrl of the CIF cache invalidation configuration")
+        String dispatcherBaseUrl() default "";
+
+        @AttributeDefinition(name = "Delay",
+                description = "Time in seconds between an invalidation and the first warming request, and between the attempts")
+        long delaySeconds() default 10;
+
+        @AttributeDefinition(name = "Max attempts",
+                description = "Number of times a page that is still served from before its invalidation is requested")
+        int maxAttempts() default 3;
+
+        @AttributeDefinition(name = "Requests per second", description = "Maximum rate of warming requests")
+        int requestsPerSecond() default 5;
+
+        @AttributeDefinition(name = "Max pending URLs", description = "Maximum number of URLs waiting to be warmed, further URLs are dropped")
+        int maxPending() default 1000;
+
+        @AttributeDefinition(name = "Timeout", description = "Connect and read timeout of a warming request in milliseconds")
+        int timeoutMillis() default 10000;
+    }
+
+    static final String INVALIDATE_CACHE_SUPPORT_PID = "com.adobe.cq.commerce.core.cacheinvalidation.internal.InvalidateCacheSupport";
+    static final String DISPATCHER_BASE_URL = "dispatcherBaseUrl";
+    static final String DISPATCHER_URL_PATH_CONFIGURATION = "dispatcherUrlPathConfiguration";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DispatcherCacheWarmer.class);
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile ConfigurationAdmin configurationAdmin;
+
+    private final Map<String, PendingUrl> pending = new LinkedHashMap<>();
+    private Configuration config;
+    private ScheduledExecutorService scheduler;
+
+    @Activate
+    protected void activate(Configuration config) {
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "venia-dispatcher-cache-warmer"));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Schedules the given invalidated paths to be warmed.
+     */
+    public void warm(Collection<String> paths) {
+        if (!config.enabled() || paths == null || DryRun.isActive()) {
+            return;
+        }
+        long invalidatedAt = System.currentTimeMillis();
+        Map<String, PendingUrl> urls = new LinkedHashMap<>();
+        for (String path : paths) {
+            if (isPage(path)) {
+                urls.put(path, new PendingUrl(invalidatedAt, 0));
+            }
+        }
+        schedule(urls);
+    }
+
+    private void schedule(Map<String, PendingUrl> urls) {
+        boolean schedule;
+        synchronized (pending) {
+            schedule = pending.isEmpty();
+            for (Map.Entry<String, PendingUrl> url : urls.entrySet()) {
+                if (pending.size() >= config.maxPending() && !pending.containsKey(url.getKey())) {
+                    LOGGER.debug("Too many pending URLs, not warming {}", url.getKey());
+                    break;
+                }
+                pending.put(url.getKey(), url.getValue());
+            }
+            schedule &= !pending.isEmpty();
+        }
+        if (schedule) {
+            scheduler.schedule(this::drain, config.delaySeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Requests all pending paths through the dispatcher, waiting between the requests to keep the configured rate. Paths that
+     * are still served from before their invalidation are scheduled again.
+     */
+    void drain() {
+        Map<String, PendingUrl> paths;
+        synchronized (pending) {
+            paths = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        String baseUrl = StringUtils.removeEnd(getDispatcherBaseUrl(), "/");
+        if (StringUtils.isBlank(baseUrl)) {
+            LOGGER.warn("No dispatcher base URL configured, not warming {} URLs", paths.size());
+            return;
+        }
+        List<String[]> urlPathMappings = getUrlPathMappings();
+        long interval = TimeUnit.SECONDS.toMillis(1) / Math.max(1, config.requestsPerSecond());
+        Map<String, PendingUrl> retries = new LinkedHashMap<>();
+        int requests = 0;
+        int warmed = 0;
+        for (Map.Entry<String, PendingUrl> path : paths.entrySet()) {
+            boolean flushed = true;
+            for (String url : toDispatcherUrls(path.getKey(), urlPathMappings)) {
+                try {
+                    if (requests++ > 0) {
+                        Thread.sleep(interval);
+                    }
+                    flushed &= fetch(baseUrl + url, path.getValue().invalidatedAt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    LOGGER.debug("Failed to warm {}: {}", url, e.getMessage());
+                }
+            }
+            PendingUrl next = new PendingUrl(path.getValue().invalidatedAt, path.getValue().attempts + 1);
+            if (flushed) {
+                warmed++;
+            } else if (next.attempts < config.maxAttempts()) {
+                retries.put(path.getKey(), next);
+            } else {
+                LOGGER.warn("{} is still served from before its invalidation after {} attempts, was the dispatcher flushed?",
+                        path.getKey(), next.attempts);
+            }
+        }
+        LOGGER.debug("Warmed {} of {} invalidated URLs", warmed, paths.size());
+        if (!retries.isEmpty()) {
+            schedule(retries);
+        }
+    }
+
+    /**
+     * Requests the given URL and discards the response.
+     *
+     * @return false if the dispatcher still served a copy rendered before the given invalidation time
+     */
+    protected boolean fetch(String url, long invalidatedAt) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(config.timeoutMillis());
+            connection.setReadTimeout(config.timeoutMillis());
+            connection.setInstanceFollowRedirects(false);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) >= 0) {
+                        // discard
+                    }
+                }
+            }
+            if (status >= 400) {
+                LOGGER.debug("Warming {} returned {}", url, status);
+            }
+            // Last-Modified has a resolution of seconds
+            long lastModified = connection.getLastModified();
+            long invalidatedAtSeconds = TimeUnit.SECONDS.toMillis(TimeUnit.MILLISECONDS.toSeconds(invalidatedAt));
+            return status >= 300 || lastModified == 0 || lastModified >= invalidatedAtSeconds;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Returns the URLs of the given path as the CIF core maps them with the dispatcherUrlPathConfiguration patterns, or the path
+     * itself if no pattern matches.
+     */
+    static List<String> toDispatcherUrls(String path, List<String[]> urlPathMappings) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (String[] mapping : urlPathMappings) {
+            Matcher matcher = Pattern.compile(mapping[0]).matcher(path);
+            if (matcher.find()) {
+                urls.add(matcher.replaceAll(mapping[1]));
+            }
+        }
+        return urls.isEmpty() ? Collections.singletonList(path) : new ArrayList<>(urls);
+    }
+
+    /**
+     * Returns the regular expressions and replacements of the dispatcherUrlPathConfiguration of the CIF cache invalidation
+     * configuration, for example {@code productUrlPath:/products/product-page.html/(.+):/p/$1}.
+     */
+    List<String[]> getUrlPathMappings() {
+        Object configured = getCacheInvalidationProperty(DISPATCHER_URL_PATH_CONFIGURATION, configurationAdmin);
+        String[] values = configured instanceof String[] ? (String[]) configured
+                : configured != null ? new String[] { configured.toString() } : new String[0];
+        List<String[]> mappings = new ArrayList<>(values.length);
+        for (String value : values) {
+            int regexStart = value.indexOf(':');
+            int replacementStart = value.lastIndexOf(':');
+            if (regexStart < 0 || replacementStart <= regexStart) {
+                LOGGER.warn("Invalid {} entry: {}", DISPATCHER_URL_PATH_CONFIGURATION, value);
+                continue;
+            }
+            try {
+                String regex = value.substring(regexStart + 1, replacementStart);
+                Pattern.compile(regex);
+                mappings.add(new String[] { regex, value.substring(replacementStart + 1) });
+            } catch (PatternSyntaxException e) {
+                LOGGER.warn("Invalid {} entry: {}", DISPATCHER_URL_PATH_CONFIGURATION, value);
+            }
+        }
+        return mappings;
+    }
+
+    String getDispatcherBaseUrl() {
+        return getDispatcherBaseUrl(config.dispatcherBaseUrl(), configurationAdmin);
+    }
+
+    /**
+     * Returns the given dispatcher base URL, or the dispatcherBaseUrl of the CIF cache invalidation configuration if it is blank.
+     */
+    static String getDispatcherBaseUrl(String configured, ConfigurationAdmin admin) {
+        if (StringUtils.isNotBlank(configured)) {
+            return configured;
+        }
+        Object baseUrl = getCacheInvalidationProperty(DISPATCHER_BASE_URL, admin);
+        return baseUrl != null ? baseUrl.toString() : null;
+    }
+
+    private static Object getCacheInvalidationProperty(String name, ConfigurationAdmin admin) {
+        if (admin == null) {
+            return null;
+        }
+        try {
+            org.osgi.service.cm.Configuration[] configurations = admin.listConfigurations("(service.pid=" + INVALIDATE_CACHE_SUPPORT_PID + ")");
+            if (configurations == null || configurations.length == 0 || configurations[0].getProperties() == null) {
+                return null;
+            }
+            return configurations[0].getProperties().get(name);
+        } catch (IOException | InvalidSyntaxException e) {
+            LOGGER.warn("Failed to read the cache invalidation configuration: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isPage(String path) {
+        return path != null && path.startsWith("/") && path.substring(path.lastIndexOf('/') + 1).contains(".");
+    }
+
+    private static final class PendingUrl {
+        private final long invalidatedAt;
+        private final int attempts;
+
+        private PendingUrl(long invalidatedAt, int attempts) {
+            this.invalidatedAt = invalidatedAt;
+            this.attempts = attempts;
+        }
+    }
+}
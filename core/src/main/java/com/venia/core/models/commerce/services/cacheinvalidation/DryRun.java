@@ -0,0 +1,54 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the current thread as evaluating cache invalidations without performing them, see
+ * {@link InvalidationImpactEstimator}.
+ *
+ * <p>While a dry run is active, the Venia strategies still compute their patterns and paths, but do not distribute the
+ * invalidation to other instances, warm the dispatcher cache, add records to the audit log or fill the
+ * {@link CategoryLevelCache}.</p>
+ */
+public final class DryRun {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private DryRun() {
+    }
+
+    public static boolean isActive() {
+        return Boolean.TRUE.equals(ACTIVE.get());
+    }
+
+    /**
+     * Runs the given supplier as a dry run in the current thread.
+     */
+    public static <T> T run(Supplier<T> supplier) {
+        Boolean previous = ACTIVE.get();
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                ACTIVE.remove();
+            } else {
+                ACTIVE.set(previous);
+            }
+        }
+    }
+}
@@ -17,12 +17,32 @@ package com.venia.core.models.commerce.services.cacheinvalidation;
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.DispatcherCacheInvalidationStrategy;
 import com.adobe.cq.commerce.core.components.client.MagentoGraphqlClient;
+import com.adobe.cq.commerce.core.components.services.urls.CategoryUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
 import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
 import com.adobe.cq.commerce.magento.graphql.*;
 import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.api.NameConstants;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import org.apache.sling.api.resource.Resource;
 
@@ -30,24 +50,137 @@ import org.apache.sling.api.resource.Resource;
  * Extended implementation of the categoryUids cache invalidation strategy that builds upon the out-of-the-box functionality.
  * This service extends the standard category invalidation by:
  * - Adding support for navigation structure depth-based invalidation
- * - Apart from the existing categoryUids invalidation, this service will invalidates the entire store cache when category falls under the navigation structure depth.
+ * - Apart from the existing categoryUids invalidation, this service invalidates the navigation when a category falls under the navigation structure depth.
  * 
- * The service invalidates the entire store cache when category falls under the navigation structure depth.
+ * When a category falls under the navigation structure depth, the service invalidates the header experience fragment, the pages
+ * of the category and of its descendants, and the configured paths that include the navigation. Without navigation include
+ * paths, or with the "Full store invalidation" option, the entire store is invalidated as before, since the navigation is then
+ * part of every cached page.
+ *
+ * Category levels and the structure depth are kept in the {@link CategoryLevelCache}, so in full store mode a category known to
+ * be within the navigation invalidates the store without a GraphQL request. The cached level of an invalidated category is
+ * evicted, the next invalidation of the category fetches it again. Other categories are fetched with paged
+ * {@code categories} queries in chunks of UIDs, which run in parallel. If a chunk cannot be fetched completely, the entire
+ * store is invalidated.
+ *
+ * Unless the entire store is invalidated, the content pages that reference one of the categories and the pages that fetched
+ * one of them when they were rendered are looked up in the {@link CommerceReferenceIndex} and invalidated as well. If the entire store is invalidated and the
+ * {@link ProgressiveDispatcherFlush} is enabled, only the navigation is invalidated right away and the store is flushed subtree
+ * by subtree.
  */
 @Component(
     service = DispatcherCacheInvalidationStrategy.class)
+@Designate(ocd = ExtendedCategoryUidInvalidation.Configuration.class)
 public class ExtendedCategoryUidInvalidation implements DispatcherCacheInvalidationStrategy {
 
+    @ObjectClassDefinition(name = "Venia Extended Category UID Invalidation")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Full store invalidation",
+                description = "Invalidate the entire store instead of the navigation and the category pages")
+        boolean fullStoreInvalidation() default false;
+
+        @AttributeDefinition(name = "Descendant depth", description = "Number of levels of descendant categories whose pages are invalidated")
+        int descendantDepth() default 2;
+
+        @AttributeDefinition(name = "Navigation include paths",
+                description = "Dispatcher paths that include the navigation, for example Sling Dynamic Include fragments. Without "
+                        + "include paths the entire store is invalidated")
+        String[] navigationIncludePaths() default {};
+
+        @AttributeDefinition(name = "Header fragment suffix",
+                description = "Path of the header experience fragment below the localized experience fragment root of a store")
+        String headerFragmentSuffix() default DEFAULT_HEADER_FRAGMENT_SUFFIX;
+
+        @AttributeDefinition(name = "Template header path",
+                description = "Path of the header experience fragment component in the structure of the page templates")
+        String templateHeaderPath() default DEFAULT_TEMPLATE_HEADER_PATH;
+
+        @AttributeDefinition(name = "Default header fragment path",
+                description = "Header experience fragment used if none can be derived from the store")
+        String defaultHeaderFragmentPath() default HEADER_FRAGMENT_PATH;
+
+        @AttributeDefinition(name = "Chunk size", description = "Maximum number of category UIDs per GraphQL request")
+        int chunkSize() default DEFAULT_CHUNK_SIZE;
+
+        @AttributeDefinition(name = "Parallelism", description = "Number of GraphQL requests for category chunks run in parallel")
+        int parallelism() default DEFAULT_PARALLELISM;
+    }
+
     // Constants for navigation structure
-    private static final String HEADER_FRAGMENT_PATH = "/content/experience-fragments/venia/us/en/site/header/master";
+    static final String HEADER_FRAGMENT_PATH = "/content/experience-fragments/venia/us/en/site/header/master";
+    static final String DEFAULT_HEADER_FRAGMENT_SUFFIX = "/site/header/master";
+    static final String DEFAULT_TEMPLATE_HEADER_PATH = "jcr:content/root/header";
+    static final int DEFAULT_CHUNK_SIZE = 100;
+    static final int DEFAULT_PARALLELISM = 4;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExtendedCategoryUidInvalidation.class);
+    private static final int MAX_PAGES_PER_CHUNK = 10;
     private static final String NAVIGATION_NODE_PATH = "jcr:content/root/navigation";
     private static final String STRUCTURE_DEPTH_PROPERTY = "structureDepth";
+    private static final String CONTENT_ROOT = "/content/";
+    private static final String EXPERIENCE_FRAGMENTS_ROOT = "/content/experience-fragments/";
+    private static final String FRAGMENT_VARIATION_PATH_PROPERTY = "fragmentVariationPath";
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationAuditLog auditLog;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationDistributor distributor;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile DispatcherCacheWarmer cacheWarmer;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile CommerceReferenceIndex referenceIndex;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile ProgressiveDispatcherFlush progressiveFlush;
+
+    @Reference
+    private UrlProvider urlProvider;
+
+    @Reference
+    private CategoryLevelCache categoryLevelCache;
+
+    private boolean fullStoreInvalidation;
+    private int descendantDepth = 2;
+    private List<String> navigationIncludePaths = Collections.emptyList();
+    private String headerFragmentSuffix = DEFAULT_HEADER_FRAGMENT_SUFFIX;
+    private String templateHeaderPath = DEFAULT_TEMPLATE_HEADER_PATH;
+    private String defaultHeaderFragmentPath = HEADER_FRAGMENT_PATH;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private ExecutorService executor;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        this.descendantDepth = Math.max(0, configuration.descendantDepth());
+        this.navigationIncludePaths = configuration.navigationIncludePaths() != null
+                ? Arrays.asList(configuration.navigationIncludePaths())
+                : Collections.emptyList();
+        // without include paths the navigation is rendered into every cached page, only a full store flush refreshes it
+        this.fullStoreInvalidation = configuration.fullStoreInvalidation() || navigationIncludePaths.isEmpty();
+        this.headerFragmentSuffix = StringUtils.defaultIfBlank(configuration.headerFragmentSuffix(), DEFAULT_HEADER_FRAGMENT_SUFFIX);
+        this.templateHeaderPath = StringUtils.defaultIfBlank(configuration.templateHeaderPath(), DEFAULT_TEMPLATE_HEADER_PATH);
+        this.defaultHeaderFragmentPath = StringUtils.defaultIfBlank(configuration.defaultHeaderFragmentPath(), HEADER_FRAGMENT_PATH);
+        this.chunkSize = configuration.chunkSize() > 0 ? configuration.chunkSize() : DEFAULT_CHUNK_SIZE;
+        int parallelism = configuration.parallelism() > 0 ? configuration.parallelism() : DEFAULT_PARALLELISM;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                runnable -> new Thread(runnable, "venia-category-invalidation-" + threads.incrementAndGet()));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdownNow();
+    }
 
     @Override
     public List<String> getPatterns(String[] invalidationParameters) {
-        String pattern = "\"uids\"\\s*:\\s*\\{\"id\"\\s*:\\s*\"";
-        String invalidationParametersString = String.join("|", invalidationParameters);
-        return Collections.singletonList(pattern + "(" + invalidationParametersString + ")");
+        List<String> patterns = InvalidationAuditLog.recordPatterns(auditLog, getInvalidationType(), invalidationParameters,
+                () -> InvalidationBatches.patterns(IdentifierPattern.CATEGORY_UID_FIELD, invalidationParameters,
+                        InvalidationBatches.DEFAULT_CHUNK_SIZE));
+        InvalidationDistributor.publish(distributor, getInvalidationType(), invalidationParameters, patterns);
+        return patterns;
     }
 
     @Override
@@ -63,41 +196,186 @@ public class ExtendedCategoryUidInvalidation implements DispatcherCacheInvalidat
             return Collections.emptyList();
         }
 
-        // Get navigation structure depth from configuration
-        Integer navigationStructureDepth = getNavigationStructureDepth(context.getResourceResolver());
+        InvalidationAuditLog.Record record = InvalidationAuditLog.start(getInvalidationType(), InvalidationAuditLog.OPERATION_PATHS,
+            context.getStorePath(), categoryUids.size());
+        List<String> paths = Collections.emptyList();
+        try {
+            paths = getPathsToInvalidate(context, categoryUids, record);
+            if (!fullStoreInvalidation) {
+                paths = addReferencingPages(paths, categoryUids);
+            } else if (paths.contains(context.getStorePath())) {
+                paths = flushProgressively(context, paths);
+            }
+        } finally {
+            record.setPaths(paths.size());
+            InvalidationAuditLog.finish(auditLog, record);
+        }
+        DispatcherCacheWarmer warmer = cacheWarmer;
+        if (warmer != null) {
+            warmer.warm(paths);
+        }
+        return paths;
+    }
+
+    private List<String> getPathsToInvalidate(CacheInvalidationContext context, List<String> categoryUids,
+                                              InvalidationAuditLog.Record record) {
+
+        // Get navigation structure depth from the header of the store
+        String store = context.getStorePath();
+        String headerFragmentPath = categoryLevelCache.getHeaderFragmentPath(store,
+            storePath -> resolveHeaderFragmentPath(context.getResourceResolver(), storePath));
+        Integer navigationStructureDepth = categoryLevelCache.getStructureDepth(headerFragmentPath + "/" + NAVIGATION_NODE_PATH,
+            path -> getNavigationStructureDepth(context.getResourceResolver(), path));
         if (navigationStructureDepth == null) {
             return Collections.emptyList();
         }
 
-        // Check if any category level requires cache invalidation
-        if (shouldInvalidateFullCache(context, categoryUids.toArray(new String[0]), navigationStructureDepth)) {
+        // Check if any category level requires cache invalidation. A cached level only proves that a category was within the
+        // navigation, categories that may have moved into it are always fetched. The invalidated categories may have moved, their
+        // cached levels are used this once.
+        int maxLevel = navigationStructureDepth + 1;
+        boolean cachedInNavigation = categoryLevelCache.isAnyWithinLevel(store, categoryUids, maxLevel);
+        categoryLevelCache.evict(store, categoryUids);
+        if (cachedInNavigation && fullStoreInvalidation) {
+            return Collections.singletonList(store);
+        }
+
+        // In full store mode the first category within the navigation decides, the remaining chunks are cancelled
+        List<CategoryTree> categories;
+        try {
+            categories = fetchCategories(context, categoryUids,
+                fullStoreInvalidation ? chunk -> isAnyWithinLevel(chunk, maxLevel) : null, record);
+        } catch (RuntimeException e) {
+            // categories that could not be fetched may be part of the navigation, flush the entire store instead
+            LOGGER.warn("Failed to fetch {} categories, invalidating {}: {}", categoryUids.size(), store, e.getMessage());
+            return store != null ? Collections.singletonList(store) : Collections.emptyList();
+        }
+        categoryLevelCache.update(store, categories);
+        boolean inNavigation = cachedInNavigation || isAnyWithinLevel(categories, maxLevel);
+        if (!inNavigation) {
+            return Collections.emptyList();
+        }
+        if (fullStoreInvalidation) {
             return Collections.singletonList(context.getStorePath());
         }
 
-        return Collections.emptyList();
+        Set<String> paths = new LinkedHashSet<>();
+        paths.add(headerFragmentPath);
+        paths.addAll(navigationIncludePaths);
+        for (CategoryTree category : categories) {
+            addCategoryPaths(context, category, paths);
+        }
+        return new ArrayList<>(paths);
     }
 
     /**
-     * Checks if the full cache should be invalidated based on category levels.
-     * This method fetches category data and determines if any category's level
-     * is within the navigation structure depth.
-     *
-     * @param context The cache invalidation context
-     * @param categoryUids Array of category UIDs to query
-     * @param navigationStructureDepth The navigation structure depth
-     * @return true if cache should be invalidated, false otherwise
+     * Hands the flush of the entire store to the {@link ProgressiveDispatcherFlush} if it is enabled. Only the navigation is
+     * invalidated right away, in a dry run the subtrees of the store are returned as well.
      */
-    private boolean shouldInvalidateFullCache(CacheInvalidationContext context, String[] categoryUids, int navigationStructureDepth) {
-        String query = buildCategoryQuery(categoryUids);
-        Query data = getGraphqlResponseData(context.getGraphqlClient(), query);
-        if (data == null || data.getCategoryList() == null) {
-            return false;
+    private List<String> flushProgressively(CacheInvalidationContext context, List<String> paths) {
+        ProgressiveDispatcherFlush flush = progressiveFlush;
+        if (flush == null || !flush.isEnabled()) {
+            return paths;
+        }
+        List<String> handles = flush.flush(context.getStorePath(), context.getResourceResolver());
+        if (handles.isEmpty()) {
+            return paths;
+        }
+        Set<String> immediate = new LinkedHashSet<>();
+        String headerFragmentPath = categoryLevelCache.getHeaderFragmentPath(context.getStorePath(),
+            storePath -> resolveHeaderFragmentPath(context.getResourceResolver(), storePath));
+        if (headerFragmentPath != null) {
+            immediate.add(headerFragmentPath);
         }
-        List<CategoryTree> categories = data.getCategoryList();
+        immediate.addAll(navigationIncludePaths);
+        if (DryRun.isActive()) {
+            immediate.addAll(handles);
+        }
+        return new ArrayList<>(immediate);
+    }
+
+    /**
+     * Adds the content pages that reference any of the given categories, for example in category carousels, and the request
+     * paths that fetched any of them when they were rendered to the given paths.
+     */
+    private List<String> addReferencingPages(List<String> paths, List<String> categoryUids) {
+        CommerceReferenceIndex index = referenceIndex;
+        if (index == null) {
+            return paths;
+        }
+        Set<String> result = new LinkedHashSet<>(paths);
+        for (String page : index.getPagesForCategories(categoryUids)) {
+            result.add(page + ".html");
+        }
+        result.addAll(index.getRenderedPathsForCategories(categoryUids));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Adds the page URLs of the given category and of its fetched descendants.
+     */
+    private void addCategoryPaths(CacheInvalidationContext context, CategoryTree category, Set<String> paths) {
+        String url = urlProvider.formatCategoryUrl(null, context.getPage(), new CategoryUrlFormat.Params(category));
+        if (url != null && !url.isEmpty()) {
+            paths.add(url);
+        }
+        if (category.getChildren() != null) {
+            for (CategoryTree child : category.getChildren()) {
+                addCategoryPaths(context, child, paths);
+            }
+        }
+    }
+
+    private static boolean isAnyWithinLevel(List<CategoryTree> categories, int maxLevel) {
         return categories.stream()
             .map(CategoryTree::getLevel)
             .filter(Objects::nonNull)
-            .anyMatch(level -> level <= navigationStructureDepth + 1);
+            .anyMatch(level -> level <= maxLevel);
+    }
+
+    /**
+     * Fetches the given categories in chunks of UIDs, running the chunks in parallel.
+     *
+     * @param context The cache invalidation context
+     * @param categoryUids The category UIDs
+     * @param stopWhen Optional condition on the categories of a chunk to stop fetching further chunks
+     * @param record The audit record counting the GraphQL requests
+     * @return The fetched categories
+     */
+    private List<CategoryTree> fetchCategories(CacheInvalidationContext context, List<String> categoryUids,
+                                               Predicate<List<CategoryTree>> stopWhen, InvalidationAuditLog.Record record) {
+        List<List<String>> chunks = InvalidationBatches.partition(categoryUids, chunkSize);
+        return InvalidationBatches.collect(chunks, chunk -> fetchCategoryChunk(context.getGraphqlClient(), chunk, record), stopWhen,
+            executor, InvalidationBatches.DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Fetches the categories of one chunk of UIDs, following the pages of the result if Commerce caps the page size.
+     */
+    private List<CategoryTree> fetchCategoryChunk(MagentoGraphqlClient client, List<String> categoryUids,
+                                                  InvalidationAuditLog.Record record) {
+        List<CategoryTree> categories = new ArrayList<>();
+        int totalPages = 1;
+        for (int page = 1; page <= totalPages && page <= MAX_PAGES_PER_CHUNK; page++) {
+            int currentPage = page;
+            CategoryResult result = record.countGraphqlRequest(() -> {
+                Query data = getGraphqlResponseData(client, buildCategoryQuery(categoryUids, currentPage));
+                if (data == null || data.getCategories() == null) {
+                    throw new IllegalStateException("Failed to fetch page " + currentPage + " of " + categoryUids.size() + " categories");
+                }
+                return data.getCategories();
+            });
+            if (result.getItems() != null) {
+                categories.addAll(result.getItems());
+            }
+            if (result.getPageInfo() != null && result.getPageInfo().getTotalPages() != null) {
+                totalPages = result.getPageInfo().getTotalPages();
+            }
+        }
+        if (totalPages > MAX_PAGES_PER_CHUNK) {
+            throw new IllegalStateException(categoryUids.size() + " categories span more than " + MAX_PAGES_PER_CHUNK + " pages");
+        }
+        return categories;
     }
 
     protected Query getGraphqlResponseData(MagentoGraphqlClient client, String query) {
@@ -111,28 +389,62 @@ public class ExtendedCategoryUidInvalidation implements DispatcherCacheInvalidat
     /**
      * Builds the GraphQL query for fetching category information.
      *
-     * @param categoryUids Array of category UIDs to query
+     * @param categoryUids The category UIDs to query
+     * @param currentPage The page of the result
      * @return The GraphQL query string
      */
-    private String buildCategoryQuery(String[] categoryUids) {
+    private String buildCategoryQuery(List<String> categoryUids, int currentPage) {
             CategoryFilterInput filter = new CategoryFilterInput();
-            FilterEqualTypeInput identifiersFilter = new FilterEqualTypeInput().setIn(Arrays.asList(categoryUids));
+            FilterEqualTypeInput identifiersFilter = new FilterEqualTypeInput().setIn(categoryUids);
             filter.setCategoryUid(identifiersFilter);
-            QueryQuery.CategoryListArgumentsDefinition searchArgs = s -> s.filters(filter);
-            CategoryTreeQueryDefinition queryArgs = q -> q.uid().level();
+            QueryQuery.CategoriesArgumentsDefinition searchArgs = s -> s.filters(filter).pageSize(categoryUids.size()).currentPage(currentPage);
+            CategoryResultQueryDefinition queryArgs = r -> r
+                    .items(q -> categoryFields(q.level(), descendantDepth))
+                    .pageInfo(info -> info.totalPages());
             return Operations.query(query -> query
-                    .categoryList(searchArgs, queryArgs)).toString();
+                    .categories(searchArgs, queryArgs)).toString();
+    }
+
+    private static void categoryFields(CategoryTreeQuery query, int depth) {
+        query.uid().urlKey().urlPath();
+        if (depth > 0) {
+            query.children(child -> categoryFields(child, depth - 1));
+        }
+    }
+
+    /**
+     * Resolves the header experience fragment of a store. This is the localized fragment of the store, for example
+     * /content/experience-fragments/venia/de/de/site/header/master for /content/venia/de/de, if it exists. Otherwise it is the
+     * fragment referenced in the template of the store root page, or the configured default.
+     *
+     * @param resourceResolver The resource resolver
+     * @param storePath The store root page path
+     * @return The header experience fragment path
+     */
+    private String resolveHeaderFragmentPath(ResourceResolver resourceResolver, String storePath) {
+        if (storePath == null || !storePath.startsWith(CONTENT_ROOT)) {
+            return defaultHeaderFragmentPath;
+        }
+        String localizedPath = EXPERIENCE_FRAGMENTS_ROOT + storePath.substring(CONTENT_ROOT.length()) + headerFragmentSuffix;
+        if (resourceResolver.getResource(localizedPath + "/" + NAVIGATION_NODE_PATH) != null) {
+            return localizedPath;
+        }
+        Resource storeContent = resourceResolver.getResource(storePath + "/" + JcrConstants.JCR_CONTENT);
+        String template = storeContent != null ? storeContent.getValueMap().get(NameConstants.PN_TEMPLATE, String.class) : null;
+        Resource header = template != null ? resourceResolver.getResource(template + "/structure/" + templateHeaderPath) : null;
+        String templateHeaderFragmentPath = header != null ? header.getValueMap().get(FRAGMENT_VARIATION_PATH_PROPERTY, String.class) : null;
+        return templateHeaderFragmentPath != null ? templateHeaderFragmentPath : defaultHeaderFragmentPath;
     }
 
     /**
      * Retrieves the navigation structure depth from the header configuration.
      *
      * @param resourceResolver The resource resolver
+     * @param navigationPath The path of the navigation resource
      * @return The navigation structure depth or null if not found
      */
-    private Integer getNavigationStructureDepth(ResourceResolver resourceResolver) {
-        Resource headerResource = resourceResolver.getResource(
-            HEADER_FRAGMENT_PATH + "/" + NAVIGATION_NODE_PATH);
+    private Integer getNavigationStructureDepth(ResourceResolver resourceResolver, String navigationPath) {
+        Resource headerResource = resourceResolver.getResource(navigationPath);
         return headerResource != null ? headerResource.getValueMap().get(STRUCTURE_DEPTH_PROPERTY, Integer.class) : null;
     }
 }
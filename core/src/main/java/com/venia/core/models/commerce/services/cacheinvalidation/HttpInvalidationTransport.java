@@ -0,0 +1,153 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An {@link InvalidationTransport} that posts the messages to the fan-out servlet of each configured peer, in parallel and
+ * without blocking the sender. Failed deliveries are retried a few times and then dropped, the invalidations of the peer are
+ * still covered by the TTL of its caches.
+ *
+ * <p>Messages are authenticated with a shared secret in the {@link #TOKEN_HEADER} header, which the receiving servlet checks
+ * with {@link #isAuthorized(String)}. Without a secret no messages are accepted.</p>
+ */
+@Component(service = { InvalidationTransport.class, HttpInvalidationTransport.class })
+@Designate(ocd = HttpInvalidationTransport.Configuration.class)
+public class HttpInvalidationTransport implements InvalidationTransport {
+
+    @ObjectClassDefinition(name = "Venia Cache Invalidation HTTP Transport")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled", description = "Send and accept invalidations to and from the peers")
+        boolean enabled() default false;
+
+        @AttributeDefinition(name = "Peer URLs",
+                description = "URLs of the fan-out servlet of the other instances, for example http://publish-2:4503"
+                        + "/bin/venia/cacheinvalidation/fanout")
+        String[] peerUrls() default {};
+
+        @AttributeDefinition(name = "Shared secret", description = "Secret sent with and expected on every message, the same on all instances")
+        String sharedSecret() default "";
+
+        @AttributeDefinition(name = "Timeout", description = "Connect and read timeout of a delivery in milliseconds")
+        int timeoutMillis() default 2000;
+
+        @AttributeDefinition(name = "Retries", description = "Number of retries of a failed delivery")
+        int retries() default 2;
+    }
+
+    public static final String TOKEN_HEADER = "X-Venia-Invalidation-Token";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpInvalidationTransport.class);
+
+    private Configuration config;
+    private ExecutorService executor;
+
+    @Activate
+    protected void activate(Configuration config) {
+        this.config = config;
+        int threads = Math.max(1, config.peerUrls().length);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "venia-invalidation-transport");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void send(InvalidationMessage message) {
+        if (!config.enabled() || StringUtils.isBlank(config.sharedSecret())) {
+            return;
+        }
+        byte[] body = message.toJson().getBytes(StandardCharsets.UTF_8);
+        for (String peerUrl : config.peerUrls()) {
+            if (StringUtils.isNotBlank(peerUrl)) {
+                executor.execute(() -> deliver(peerUrl, body));
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given token is the configured shared secret.
+     */
+    public boolean isAuthorized(String token) {
+        if (!config.enabled() || StringUtils.isBlank(config.sharedSecret()) || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(config.sharedSecret().getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void deliver(String peerUrl, byte[] body) {
+        for (int attempt = 0; attempt <= config.retries(); attempt++) {
+            try {
+                int status = post(peerUrl, body);
+                if (status < 300) {
+                    return;
+                }
+                LOGGER.debug("Delivery of an invalidation to {} failed with status {}", peerUrl, status);
+            } catch (IOException e) {
+                LOGGER.debug("Delivery of an invalidation to {} failed: {}", peerUrl, e.getMessage());
+            }
+        }
+        LOGGER.warn("Failed to deliver an invalidation to {}", peerUrl);
+    }
+
+    protected int post(String url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(config.timeoutMillis());
+            connection.setReadTimeout(config.timeoutMillis());
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty(TOKEN_HEADER, config.sharedSecret());
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (response != null) {
+                response.close();
+            }
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
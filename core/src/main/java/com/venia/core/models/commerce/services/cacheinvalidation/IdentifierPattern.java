@@ -0,0 +1,185 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * The regular expression matching a set of identifiers (SKUs, category UIDs) in a JSON field of cached GraphQL responses.
+ *
+ * <p>The CIF core only accepts regular expressions from the invalidation strategies. {@link #toRegex()} therefore renders the
+ * identifiers as a trie-factored alternation: common prefixes are matched once, so the regex engine does not backtrack over
+ * thousands of alternatives that share a prefix.</p>
+ *
+ * <p>Identifiers are always matched as literals: regular expression metacharacters are escaped and the value must end after
+ * the identifier, so {@code "sku.1"} neither matches {@code "skux1"} nor {@code "sku.10"}.</p>
+ *
+ * <p>A field regex that ends with the opening quote of the value, like {@link #SKU_FIELD}, only matches string values. Field
+ * regexes built by {@link #fieldRegex(String)} end before the value and also match the identifiers that are JSON numbers when
+ * the value is not quoted, for example {@code "brand_id":42}.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+public final class IdentifierPattern {
+
+    /** Matches the start of the value of a {@code sku} field. */
+    public static final String SKU_FIELD = "\"sku\":\\s*\"";
+
+    /** Matches the start of the value of the {@code id} in a {@code uids} field. */
+    public static final String CATEGORY_UID_FIELD = "\"uids\"\\s*:\\s*\\{\"id\"\\s*:\\s*\"";
+
+    private static final Pattern FIELD_NAME = Pattern.compile("[_A-Za-z][_0-9A-Za-z]*");
+    private static final Pattern JSON_NUMBER = Pattern.compile("-?(?:0|[1-9][0-9]*)(?:\\.[0-9]+)?(?:[eE][+-]?[0-9]+)?");
+    private static final String NUMBER_END = "(?![0-9.eE+-])";
+    private static final String REGEX_METACHARACTERS = "\\.[]{}()*+?^$|";
+
+    private final String field;
+    private final Set<String> identifiers;
+    private final String regex;
+
+    private IdentifierPattern(String field, Set<String> identifiers) {
+        this.field = field;
+        this.identifiers = Collections.unmodifiableSet(identifiers);
+        if (field.endsWith("\"")) {
+            this.regex = field + "(" + renderAlternation(identifiers) + ")\"";
+        } else {
+            Set<String> numbers = new TreeSet<>();
+            for (String identifier : identifiers) {
+                if (JSON_NUMBER.matcher(identifier).matches()) {
+                    numbers.add(identifier);
+                }
+            }
+            String string = "\"(" + renderAlternation(identifiers) + ")\"";
+            this.regex = numbers.isEmpty() ? field + string
+                    : field + "(?:" + string + "|(" + renderAlternation(numbers) + ")" + NUMBER_END + ")";
+        }
+    }
+
+    /**
+     * Returns the pattern for the given field and identifiers. {@code null} and empty identifiers are ignored.
+     */
+    public static IdentifierPattern of(String field, String... identifiers) {
+        return of(field, identifiers != null ? Arrays.asList(identifiers) : Collections.emptyList());
+    }
+
+    public static IdentifierPattern of(String field, Collection<String> identifiers) {
+        Set<String> sorted = new TreeSet<>();
+        for (String identifier : identifiers) {
+            if (identifier != null && !identifier.isEmpty()) {
+                sorted.add(identifier);
+            }
+        }
+        return new IdentifierPattern(field, sorted);
+    }
+
+    /**
+     * Returns the field regex for the given field path, for example {@code brand} or {@code price_list.code}. Every segment but
+     * the last must be the name of an object, the field may appear anywhere within that object. String values and unquoted
+     * numbers are matched.
+     *
+     * @throws IllegalArgumentException if a segment of the path is not a GraphQL field name
+     */
+    public static String fieldRegex(String fieldPath) {
+        String[] segments = fieldPath != null ? fieldPath.split("\\.", -1) : new String[] { "" };
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (!FIELD_NAME.matcher(segments[i]).matches()) {
+                throw new IllegalArgumentException("Invalid field path: " + fieldPath);
+            }
+            regex.append('"').append(segments[i]).append("\"\\s*:\\s*");
+            if (i < segments.length - 1) {
+                regex.append("\\{[^{}]*?");
+            }
+        }
+        return regex.toString();
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Set<String> getIdentifiers() {
+        return identifiers;
+    }
+
+    public boolean isEmpty() {
+        return identifiers.isEmpty();
+    }
+
+    /**
+     * Returns the regular expression for the CIF core cache invalidation.
+     */
+    public String toRegex() {
+        return regex;
+    }
+
+    /**
+     * Returns the patterns to be returned by a cache invalidation strategy. This is empty if there are no identifiers, as an
+     * empty alternation would match every cache entry.
+     */
+    public List<String> toPatterns() {
+        return identifiers.isEmpty() ? Collections.emptyList() : Collections.singletonList(regex);
+    }
+
+    private static String renderAlternation(Set<String> identifiers) {
+        Node root = new Node();
+        identifiers.forEach(root::insert);
+        List<String> alternatives = root.renderChildren();
+        return String.join("|", alternatives);
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        private boolean terminal;
+
+        void insert(String identifier) {
+            Node node = this;
+            for (int i = 0; i < identifier.length(); i++) {
+                node = node.children.computeIfAbsent(identifier.charAt(i), c -> new Node());
+            }
+            node.terminal = true;
+        }
+
+        List<String> renderChildren() {
+            List<String> alternatives = new ArrayList<>(children.size());
+            children.forEach((c, child) -> alternatives.add(escape(c) + child.render()));
+            return alternatives;
+        }
+
+        String render() {
+            if (children.isEmpty()) {
+                return "";
+            }
+            List<String> alternatives = renderChildren();
+            if (alternatives.size() == 1 && !terminal) {
+                return alternatives.get(0);
+            }
+            return "(?:" + String.join("|", alternatives) + ")" + (terminal ? "?" : "");
+        }
+
+        private static String escape(char c) {
+            return REGEX_METACHARACTERS.indexOf(c) >= 0 ? "\\" + c : String.valueOf(c);
+        }
+    }
+}
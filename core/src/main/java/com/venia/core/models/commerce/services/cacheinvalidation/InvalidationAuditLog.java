@@ -0,0 +1,228 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * This service keeps the cost of the most recent invocations of the Venia cache invalidation strategies in a bounded ring
+ * buffer, so that invalidations which cause cold cache storms can be spotted. The records are served as JSON by the
+ * {@link com.venia.core.models.commerce.servlets.InvalidationAuditServlet}.
+ *
+ * <p>Every record holds the number of invalidation parameters, the time spent building the patterns, the number of completed
+ * and failed GraphQL requests, the number of patterns and dispatcher paths returned to the CIF core and the wall time of the
+ * invocation. Invocations that fail are recorded as well.</p>
+ */
+@Component(service = InvalidationAuditLog.class)
+@Designate(ocd = InvalidationAuditLog.Configuration.class)
+public class InvalidationAuditLog {
+
+    @ObjectClassDefinition(name = "Venia Cache Invalidation Audit Log")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Capacity", description = "Number of invalidation records kept in memory")
+        int capacity() default DEFAULT_CAPACITY;
+
+        @AttributeDefinition(name = "Slow invalidation threshold",
+                description = "Wall time in milliseconds above which an invalidation is logged as a warning, 0 to disable")
+        long slowThresholdMillis() default 5000;
+    }
+
+    static final int DEFAULT_CAPACITY = 200;
+    static final String OPERATION_PATTERNS = "getPatterns";
+    static final String OPERATION_PATHS = "getPathsToInvalidate";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationAuditLog.class);
+
+    private Record[] records = new Record[DEFAULT_CAPACITY];
+    private int next;
+    private int size;
+    private long slowThresholdMillis;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        synchronized (this) {
+            records = new Record[Math.max(1, configuration.capacity())];
+            next = 0;
+            size = 0;
+        }
+        slowThresholdMillis = configuration.slowThresholdMillis();
+    }
+
+    /**
+     * Starts a record for an invocation of the given strategy. The record is only kept once it is passed to
+     * {@link #finish(InvalidationAuditLog, Record)}.
+     */
+    public static Record start(String invalidationType, String operation, String storePath, int parameters) {
+        return new Record(invalidationType, operation, storePath, parameters);
+    }
+
+    /**
+     * Completes the given record and adds it to the audit log, if there is one.
+     */
+    public static void finish(InvalidationAuditLog auditLog, Record record) {
+        record.wallTimeNanos = System.nanoTime() - record.startNanos;
+        if (auditLog != null && !DryRun.isActive()) {
+            auditLog.add(record);
+        }
+    }
+
+    /**
+     * Builds the patterns of an invocation of {@code getPatterns} with the given builder and records its cost.
+     */
+    public static List<String> recordPatterns(InvalidationAuditLog auditLog, String invalidationType, String[] parameters,
+                                              Supplier<List<String>> builder) {
+        Record record = start(invalidationType, OPERATION_PATTERNS, null, parameters != null ? parameters.length : 0);
+        List<String> patterns = Collections.emptyList();
+        try {
+            patterns = builder.get();
+            return patterns;
+        } finally {
+            record.setPatterns(patterns.size(), System.nanoTime() - record.startNanos);
+            finish(auditLog, record);
+        }
+    }
+
+    /**
+     * Returns the records in the audit log, the most recent first.
+     */
+    public synchronized List<Record> getRecords() {
+        List<Record> result = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            result.add(records[(next - i + records.length) % records.length]);
+        }
+        return result;
+    }
+
+    void add(Record record) {
+        synchronized (this) {
+            records[next] = record;
+            next = (next + 1) % records.length;
+            size = Math.min(size + 1, records.length);
+        }
+        if (slowThresholdMillis > 0 && record.getWallTimeMillis() > slowThresholdMillis) {
+            LOGGER.warn("Slow cache invalidation {} of {} with {} parameters took {} ms", record.operation, record.invalidationType,
+                    record.parameters, record.getWallTimeMillis());
+        }
+    }
+
+    /**
+     * The cost of one invocation of a cache invalidation strategy. GraphQL requests can be counted from parallel chunks.
+     */
+    public static final class Record {
+        private final long timestamp = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final String invalidationType;
+        private final String operation;
+        private final String storePath;
+        private final int parameters;
+        private final AtomicInteger graphqlRequests = new AtomicInteger();
+        private final AtomicInteger graphqlErrors = new AtomicInteger();
+        private volatile long patternBuildNanos;
+        private volatile int patterns;
+        private volatile int paths;
+        private volatile long wallTimeNanos;
+
+        private Record(String invalidationType, String operation, String storePath, int parameters) {
+            this.invalidationType = invalidationType;
+            this.operation = operation;
+            this.storePath = storePath;
+            this.parameters = parameters;
+        }
+
+        /**
+         * Runs the given GraphQL request and counts it once it has completed. Requests that fail are counted as errors too.
+         */
+        public <T> T countGraphqlRequest(Supplier<T> request) {
+            boolean failed = true;
+            try {
+                T result = request.get();
+                failed = false;
+                return result;
+            } finally {
+                graphqlRequests.incrementAndGet();
+                if (failed) {
+                    graphqlErrors.incrementAndGet();
+                }
+            }
+        }
+
+        public void setPatterns(int patterns, long buildNanos) {
+            this.patterns = patterns;
+            this.patternBuildNanos = buildNanos;
+        }
+
+        public void setPaths(int paths) {
+            this.paths = paths;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getInvalidationType() {
+            return invalidationType;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getStorePath() {
+            return storePath;
+        }
+
+        public int getParameters() {
+            return parameters;
+        }
+
+        public int getGraphqlRequests() {
+            return graphqlRequests.get();
+        }
+
+        public int getGraphqlErrors() {
+            return graphqlErrors.get();
+        }
+
+        public int getPatterns() {
+            return patterns;
+        }
+
+        public long getPatternBuildMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(patternBuildNanos);
+        }
+
+        public int getPaths() {
+            return paths;
+        }
+
+        public long getWallTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(wallTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Helpers to process the identifiers of large cache invalidation requests in chunks.
+ *
+ * <p>Identifiers are deduplicated and split into chunks of a bounded size, so that neither the regular expressions passed to
+ * the CIF core nor the GraphQL requests to resolve dispatcher paths grow with the size of the request. Chunks can be resolved in
+ * parallel, the resulting paths are deduplicated in the order of the chunks. A chunk that fails or does not complete in time
+ * fails the whole resolution, so that callers can fall back to a wider invalidation instead of missing paths. Lookups that only
+ * need to find one matching result can stop early and cancel the remaining chunks, otherwise a failing chunk fails the lookup as
+ * well.</p>
+ */
+final class InvalidationBatches {
+
+    static final int DEFAULT_CHUNK_SIZE = 500;
+    static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+    private InvalidationBatches() {
+    }
+
+    /**
+     * Splits the given identifiers into chunks of at most {@code chunkSize} distinct, non-empty identifiers.
+     */
+    static List<List<String>> partition(Collection<String> identifiers, int chunkSize) {
+        if (identifiers == null || identifiers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String identifier : identifiers) {
+            if (identifier != null && !identifier.isEmpty()) {
+                distinct.add(identifier);
+            }
+        }
+        List<String> all = new ArrayList<>(distinct);
+        int size = Math.max(1, chunkSize);
+        List<List<String>> chunks = new ArrayList<>((all.size() + size - 1) / size);
+        for (int start = 0; start < all.size(); start += size) {
+            chunks.add(all.subList(start, Math.min(all.size(), start + size)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns one pattern per chunk of the given identifiers.
+     */
+    static List<String> patterns(String field, String[] identifiers, int chunkSize) {
+        if (identifiers == null) {
+            return Collections.emptyList();
+        }
+        List<String> patterns = new ArrayList<>();
+        for (List<String> chunk : partition(Arrays.asList(identifiers), chunkSize)) {
+            patterns.addAll(IdentifierPattern.of(field, chunk).toPatterns());
+        }
+        return patterns;
+    }
+
+    /**
+     * Resolves the paths of all chunks with the given executor and returns the distinct paths. Without an executor the chunks are
+     * resolved in the calling thread.
+     *
+     * @throws IllegalStateException if a chunk fails or the chunks are not resolved within the timeout, the remaining chunks are
+     *             cancelled
+     */
+    static List<String> resolve(List<List<String>> chunks, Function<List<String>, List<String>> resolver, ExecutorService executor,
+                                long timeoutMillis) {
+        Set<String> paths = new LinkedHashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (executor == null || chunks.size() <= 1) {
+            for (List<String> chunk : chunks) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Resolving the paths of " + chunks.size() + " chunks timed out");
+                }
+                addAll(paths, resolver.apply(chunk));
+            }
+            return new ArrayList<>(paths);
+        }
+
+        List<Future<List<String>>> futures = new ArrayList<>(chunks.size());
+        for (List<String> chunk : chunks) {
+            futures.add(executor.submit(() -> resolver.apply(chunk)));
+        }
+        try {
+            for (Future<List<String>> future : futures) {
+                addAll(paths, future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving the paths of " + chunks.size() + " chunks", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to resolve the paths of a chunk: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Resolving the paths of " + chunks.size() + " chunks timed out", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * Fetches the results of all chunks with the given executor, in the order in which the chunks complete. As soon as the
+     * result of a chunk satisfies {@code stopWhen}, the remaining chunks are cancelled and the results collected so far are
+     * returned. Without an executor the chunks are fetched in the calling thread.
+     *
+     * @throws IllegalStateException if a chunk fails or the chunks are not fetched within the timeout before {@code stopWhen} is
+     *             satisfied, the remaining chunks are cancelled
+     */
+    static <T> List<T> collect(List<List<String>> chunks, Function<List<String>, List<T>> fetcher, Predicate<List<T>> stopWhen,
+                               ExecutorService executor, long timeoutMillis) {
+        List<T> results = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (executor == null || chunks.size() <= 1) {
+            for (List<String> chunk : chunks) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Fetching " + chunks.size() + " chunks timed out");
+                }
+                List<T> chunkResult = fetchChunk(fetcher, chunk);
+                results.addAll(chunkResult);
+                if (stopWhen != null && stopWhen.test(chunkResult)) {
+                    break;
+                }
+            }
+            return results;
+        }
+
+        CompletionService<List<T>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<List<T>>> futures = new ArrayList<>(chunks.size());
+        for (List<String> chunk : chunks) {
+            futures.add(completionService.submit(() -> fetchChunk(fetcher, chunk)));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<List<T>> future = completionService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new IllegalStateException("Fetching " + chunks.size() + " chunks timed out");
+                }
+                List<T> chunkResult = future.get();
+                results.addAll(chunkResult);
+                if (stopWhen != null && stopWhen.test(chunkResult)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching " + chunks.size() + " chunks", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to fetch a chunk: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private static <T> List<T> fetchChunk(Function<List<String>, List<T>> fetcher, List<String> chunk) {
+        List<T> result = fetcher.apply(chunk);
+        return result != null ? result : Collections.emptyList();
+    }
+
+    private static void addAll(Set<String> paths, List<String> chunkPaths) {
+        if (chunkPaths != null) {
+            for (String path : chunkPaths) {
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+        }
+    }
+}
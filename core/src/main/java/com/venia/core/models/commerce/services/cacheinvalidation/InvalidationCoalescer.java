@@ -0,0 +1,318 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.day.cq.replication.ReplicationActionType;
+import com.day.cq.replication.ReplicationException;
+import com.day.cq.replication.Replicator;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This service collects cache invalidation requests over a configurable window and merges their parameters per store and
+ * invalidation type, so that bursts of small, overlapping requests result in one cache scan and one dispatcher flush per window.
+ *
+ * <p>When a window ends, one invalidation command node per store is written to {@code /var/cif/cacheinvalidation}, the same
+ * way the CIF cache invalidation servlet does. The CIF core picks the node up and runs all registered strategies once with the
+ * merged identifiers. The command nodes written by this service are removed again after the configured retention. If the
+ * commands cannot be written, the requests are kept and written with the next window.</p>
+ *
+ * <p>Like the CIF cache invalidation servlet on author, the command nodes are replicated, so that the publish instances run the
+ * strategies and flush their dispatcher caches as well. The removal of expired command nodes is replicated too.</p>
+ *
+ * <p>Requests that must be acknowledged only once their command is persisted, like the queued requests of the
+ * {@link InvalidationJobConsumer}, are written right away instead.</p>
+ */
+@Component(service = InvalidationCoalescer.class)
+@Designate(ocd = InvalidationCoalescer.Configuration.class)
+public class InvalidationCoalescer {
+
+    @ObjectClassDefinition(name = "Venia Cache Invalidation Coalescer")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Window", description = "Time in milliseconds during which invalidation requests are collected")
+        long windowMillis() default 2000;
+
+        @AttributeDefinition(
+                name = "Max identifiers",
+                description = "Number of pending identifiers of a store after which its requests are written before the window ends")
+        int maxIdentifiers() default 10000;
+
+        @AttributeDefinition(
+                name = "Replicate",
+                description = "Replicate the invalidation commands to the publish instances, needs the replication service")
+        boolean replicate() default true;
+
+        @AttributeDefinition(
+                name = "Retention",
+                description = "Time in seconds after which the invalidation commands written by this service are removed")
+        long retentionSeconds() default 300;
+    }
+
+    static final String SUBSERVICE = "venia-cache-invalidation";
+    public static final String WORKING_AREA = "/var/cif/cacheinvalidation";
+    static final String NODE_NAME_PREFIX = "cmd-venia-";
+    static final String PROPERTY_STORE_PATH = "storePath";
+    static final String PROPERTY_INVALIDATE_ALL = "invalidateAll";
+    static final String PROPERTY_TIMESTAMP = "veniaTimestamp";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationCoalescer.class);
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile Replicator replicator;
+
+    private final Object lock = new Object();
+    private final Map<String, Pending> pendingByStore = new LinkedHashMap<>();
+    private final AtomicLong counter = new AtomicLong();
+    private Configuration configuration;
+    private ScheduledExecutorService scheduler;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        this.configuration = configuration;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "venia-invalidation-coalescer"));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        scheduler.shutdownNow();
+        // do not drop the requests collected so far
+        flush();
+    }
+
+    /**
+     * Adds an invalidation request for the given store to the current window. The parameters map each invalidation type to its
+     * identifiers, the same parameters accepted by the CIF cache invalidation servlet.
+     *
+     * @param storePath the path of the store, for example {@code /content/venia/us/en}
+     * @param parameters the identifiers per invalidation type
+     * @param invalidateAll whether all cache entries of the store should be invalidated
+     */
+    public void submit(String storePath, Map<String, ? extends Iterable<String>> parameters, boolean invalidateAll) {
+        boolean flushNow;
+        synchronized (lock) {
+            boolean firstOfWindow = pendingByStore.isEmpty();
+            Pending pending = pendingByStore.computeIfAbsent(storePath, key -> new Pending());
+            pending.add(parameters, invalidateAll);
+            flushNow = pending.size >= configuration.maxIdentifiers();
+            if (firstOfWindow && !flushNow) {
+                scheduler.schedule(this::flush, configuration.windowMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes the invalidation command of one request right away, without waiting for the window.
+     *
+     * @throws LoginException if the service user cannot log in
+     * @throws PersistenceException if the command cannot be written
+     */
+    public void write(String storePath, Map<String, ? extends Iterable<String>> parameters, boolean invalidateAll)
+            throws LoginException, PersistenceException {
+        Pending pending = new Pending();
+        pending.add(parameters, invalidateAll);
+        write(Collections.singletonMap(storePath, pending));
+    }
+
+    /**
+     * Returns the number of stores with pending invalidation requests.
+     */
+    public int getPendingStores() {
+        synchronized (lock) {
+            return pendingByStore.size();
+        }
+    }
+
+    /**
+     * Writes one invalidation command per store with the merged parameters of all pending requests and removes expired
+     * commands of earlier windows.
+     */
+    void flush() {
+        Map<String, Pending> window;
+        synchronized (lock) {
+            if (pendingByStore.isEmpty()) {
+                return;
+            }
+            window = new LinkedHashMap<>(pendingByStore);
+            pendingByStore.clear();
+        }
+
+        try {
+            write(window);
+            LOGGER.debug("Wrote coalesced invalidation commands for {} stores", window.size());
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.warn("Failed to write coalesced invalidation commands for {}, retrying: {}", window.keySet(), e.getMessage());
+            requeue(window);
+        }
+    }
+
+    /**
+     * Puts the requests of a window that could not be written back in front of the requests collected since, so that they are
+     * written with the next window.
+     */
+    private void requeue(Map<String, Pending> window) {
+        synchronized (lock) {
+            boolean firstOfWindow = pendingByStore.isEmpty();
+            Map<String, Pending> merged = new LinkedHashMap<>(window);
+            pendingByStore.forEach((storePath, pending) -> merged.merge(storePath, pending, Pending::merge));
+            pendingByStore.clear();
+            pendingByStore.putAll(merged);
+            if (scheduler.isShutdown()) {
+                LOGGER.error("Dropping the invalidation requests for {}, the coalescer is stopped", window.keySet());
+            } else if (firstOfWindow) {
+                scheduler.schedule(this::flush, configuration.windowMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void write(Map<String, Pending> commands) throws LoginException, PersistenceException {
+        Map<String, Object> authInfo = Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE);
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(authInfo)) {
+            Resource workingArea = ResourceUtil.getOrCreateResource(resolver, WORKING_AREA, "sling:Folder", "sling:Folder", false);
+            long now = System.currentTimeMillis();
+            List<String> expired = removeExpired(resolver, workingArea,
+                    now - TimeUnit.SECONDS.toMillis(configuration.retentionSeconds()));
+            List<String> written = new ArrayList<>();
+            for (Map.Entry<String, Pending> entry : commands.entrySet()) {
+                written.add(resolver.create(workingArea, NODE_NAME_PREFIX + now + "-" + counter.incrementAndGet(),
+                        entry.getValue().toProperties(entry.getKey(), now)).getPath());
+            }
+            resolver.commit();
+            replicate(resolver, written, expired);
+        }
+    }
+
+    private void replicate(ResourceResolver resolver, List<String> written, List<String> expired) throws PersistenceException {
+        Replicator currentReplicator = replicator;
+        if (!configuration.replicate() || currentReplicator == null) {
+            return;
+        }
+        Session session = resolver.adaptTo(Session.class);
+        for (String path : written) {
+            try {
+                currentReplicator.replicate(session, ReplicationActionType.ACTIVATE, path);
+            } catch (ReplicationException e) {
+                throw new PersistenceException("Failed to replicate the invalidation command " + path, e);
+            }
+        }
+        for (String path : expired) {
+            try {
+                currentReplicator.replicate(session, ReplicationActionType.DELETE, path);
+            } catch (ReplicationException e) {
+                LOGGER.warn("Failed to replicate the removal of the invalidation command {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> removeExpired(ResourceResolver resolver, Resource workingArea, long expiry)
+            throws PersistenceException {
+        List<Resource> expired = new ArrayList<>();
+        for (Resource child : workingArea.getChildren()) {
+            if (child.getName().startsWith(NODE_NAME_PREFIX)
+                    && child.getValueMap().get(PROPERTY_TIMESTAMP, Long.MAX_VALUE) < expiry) {
+                expired.add(child);
+            }
+        }
+        List<String> paths = new ArrayList<>(expired.size());
+        for (Resource resource : expired) {
+            paths.add(resource.getPath());
+            resolver.delete(resource);
+        }
+        return paths;
+    }
+
+    private static final class Pending {
+        private final Map<String, Set<String>> identifiersByType = new LinkedHashMap<>();
+        private boolean invalidateAll;
+        private int size;
+
+        void add(Map<String, ? extends Iterable<String>> parameters, boolean invalidateAll) {
+            this.invalidateAll |= invalidateAll;
+            if (parameters == null) {
+                return;
+            }
+            parameters.forEach((type, identifiers) -> {
+                if (identifiers == null) {
+                    return;
+                }
+                Set<String> merged = identifiersByType.computeIfAbsent(type, key -> new LinkedHashSet<>());
+                for (String identifier : identifiers) {
+                    if (identifier != null && !identifier.isEmpty() && merged.add(identifier)) {
+                        size++;
+                    }
+                }
+            });
+        }
+
+        Pending merge(Pending other) {
+            other.identifiersByType.forEach((type, identifiers) ->
+                    add(Collections.singletonMap(type, identifiers), false));
+            invalidateAll |= other.invalidateAll;
+            return this;
+        }
+
+        Map<String, Object> toProperties(String storePath, long timestamp) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("jcr:primaryType", "nt:unstructured");
+            properties.put(PROPERTY_STORE_PATH, storePath);
+            properties.put(PROPERTY_TIMESTAMP, timestamp);
+            if (invalidateAll) {
+                properties.put(PROPERTY_INVALIDATE_ALL, true);
+            }
+            identifiersByType.forEach((type, identifiers) -> {
+                if (!identifiers.isEmpty()) {
+                    properties.put(type, identifiers.toArray(new String[0]));
+                }
+            });
+            return properties;
+        }
+    }
+}
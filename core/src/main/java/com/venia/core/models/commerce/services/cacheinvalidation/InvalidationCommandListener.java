@@ -0,0 +1,88 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This listener posts the {@link InvalidationEvents} of each invalidation command node written to
+ * {@code /var/cif/cacheinvalidation}, the node the CIF core processes to perform the invalidation. The events are therefore
+ * posted once per invalidation request and type, independent of how many strategies are registered for a type.
+ *
+ * <p>Every multi-value string property of a command node, for example {@code productSkus}, is an invalidation type with its
+ * identifiers.</p>
+ */
+@Component(
+        service = ResourceChangeListener.class,
+        property = {
+                ResourceChangeListener.PATHS + "=" + InvalidationCoalescer.WORKING_AREA,
+                ResourceChangeListener.CHANGES + "=ADDED"
+        })
+public class InvalidationCommandListener implements ResourceChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationCommandListener.class);
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile EventAdmin eventAdmin;
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        EventAdmin currentEventAdmin = eventAdmin;
+        if (currentEventAdmin == null) {
+            return;
+        }
+        Map<String, Object> authInfo = Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, InvalidationCoalescer.SUBSERVICE);
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(authInfo)) {
+            for (ResourceChange change : changes) {
+                Resource command = resolver.getResource(change.getPath());
+                if (command == null || !InvalidationCoalescer.WORKING_AREA.equals(command.getParent().getPath())) {
+                    continue;
+                }
+                post(currentEventAdmin, command.getValueMap());
+            }
+        } catch (LoginException e) {
+            LOGGER.error("Failed to read the invalidation commands: {}", e.getMessage());
+        }
+    }
+
+    private static void post(EventAdmin eventAdmin, ValueMap properties) {
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            if (property.getValue() instanceof String[] && !property.getKey().contains(":")) {
+                InvalidationEvents.post(eventAdmin, property.getKey(), (String[]) property.getValue());
+            }
+        }
+    }
+}
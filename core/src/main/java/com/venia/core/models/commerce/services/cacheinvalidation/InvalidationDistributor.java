@@ -0,0 +1,335 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.graphql.client.GraphqlClient;
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This service distributes the invalidations computed by the Venia strategies to the other instances of a farm, so that the
+ * in-memory GraphQL caches of all publish instances converge without each of them receiving and computing the invalidation.
+ *
+ * <p>A strategy publishes the identifiers and patterns of an invalidation once, the configured {@link InvalidationTransport}
+ * broadcasts them. The receiving instance applies the patterns to all its GraphQL clients in parallel and posts the
+ * {@link InvalidationEvents} for its own in-memory data.</p>
+ *
+ * <ul>
+ * <li>Redelivery: messages are identified by their origin and a sequence number per origin. A message delivered more than once
+ * by the transport is applied once, as long as it is among the last received messages this instance remembers.</li>
+ * <li>Ordering: the messages of an origin are applied in the order of their sequence numbers. A message that arrives before an
+ * earlier one of its origin waits for it, up to the ordering timeout. Then the missing messages are skipped and applied when they
+ * arrive late, an invalidation is never dropped because a later one overtook it.</li>
+ * <li>Deduplication: a replicated invalidation request is computed by every instance that receives it. Within the dedupe window,
+ * every invalidation computed locally is paired with at most one equal invalidation, same type and identifiers, received from
+ * a peer: an instance does not broadcast an invalidation a peer broadcast already, and does not apply a received one it
+ * broadcast itself. Each computation is paired only once, so a second change of the same product is still distributed.</li>
+ * </ul>
+ */
+@Component(service = InvalidationDistributor.class)
+@Designate(ocd = InvalidationDistributor.Configuration.class)
+public class InvalidationDistributor {
+
+    @ObjectClassDefinition(name = "Venia Cache Invalidation Distributor")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled", description = "Broadcast local invalidations and apply the ones of the peers")
+        boolean enabled() default false;
+
+        @AttributeDefinition(name = "Instance id", description = "Name of this instance in the messages, a random id if empty")
+        String instanceId() default "";
+
+        @AttributeDefinition(
+                name = "Dedupe window",
+                description = "Time in seconds in which an invalidation computed locally and an equal one received from a peer are handled once")
+        long dedupeWindowSeconds() default 60;
+
+        @AttributeDefinition(name = "Max tracked messages", description = "Maximum number of messages and invalidations remembered for deduplication")
+        int maxTracked() default 10000;
+
+        @AttributeDefinition(
+                name = "Ordering timeout",
+                description = "Time in milliseconds a message waits for the earlier messages of its origin before they are skipped")
+        long orderingTimeoutMillis() default 5000;
+
+        @AttributeDefinition(name = "Apply threads", description = "Number of threads applying an invalidation to the GraphQL clients")
+        int applyThreads() default 4;
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationDistributor.class);
+    private static final int MAX_ORIGINS = 256;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile InvalidationTransport transport;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile EventAdmin eventAdmin;
+
+    private final List<GraphqlClient> graphqlClients = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private Set<String> received;
+    private Map<String, Origin> origins;
+    private Map<String, Pairing> pairings;
+    private Configuration config;
+    private String origin;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    @Reference(
+            service = GraphqlClient.class,
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC)
+    protected void bindGraphqlClient(GraphqlClient graphqlClient) {
+        graphqlClients.add(graphqlClient);
+    }
+
+    protected void unbindGraphqlClient(GraphqlClient graphqlClient) {
+        graphqlClients.remove(graphqlClient);
+    }
+
+    @Activate
+    protected void activate(Configuration config) {
+        this.config = config;
+        String instanceId = StringUtils.isNotBlank(config.instanceId()) ? config.instanceId() : UUID.randomUUID().toString();
+        // a restarted instance starts a new sequence
+        this.origin = instanceId + "/" + System.currentTimeMillis();
+        int maxTracked = Math.max(1, config.maxTracked());
+        this.received = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxTracked;
+            }
+        });
+        this.origins = new LinkedHashMap<String, Origin>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Origin> eldest) {
+                return size() > MAX_ORIGINS;
+            }
+        };
+        this.pairings = new LinkedHashMap<String, Pairing>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Pairing> eldest) {
+                return size() > maxTracked;
+            }
+        };
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.applyThreads()),
+                runnable -> new Thread(runnable, "venia-invalidation-distributor"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "venia-invalidation-distributor-ordering"));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Publishes an invalidation computed by a strategy, if the distributor is available.
+     */
+    public static void publish(InvalidationDistributor distributor, String invalidationType, String[] identifiers,
+                               List<String> patterns) {
+        if (distributor != null) {
+            distributor.publish(invalidationType, identifiers, patterns);
+        }
+    }
+
+    /**
+     * Broadcasts an invalidation computed by a strategy of this instance, unless a peer broadcast the same invalidation within
+     * the dedupe window.
+     */
+    public void publish(String invalidationType, String[] identifiers, List<String> patterns) {
+        InvalidationTransport currentTransport = transport;
+        if (!config.enabled() || currentTransport == null || patterns == null || patterns.isEmpty() || DryRun.isActive()) {
+            return;
+        }
+        InvalidationMessage message = new InvalidationMessage(origin, sequence.incrementAndGet(), invalidationType, identifiers,
+                patterns);
+        if (pair(message.getContentKey(), true)) {
+            LOGGER.debug("Not broadcasting {} invalidation, it was received from a peer", invalidationType);
+            return;
+        }
+        currentTransport.send(message);
+    }
+
+    /**
+     * Applies an invalidation received from a peer, after the earlier messages of its origin.
+     *
+     * @return true if the invalidation was accepted, false if it was dropped as a duplicate or a message of this instance
+     */
+    public boolean receive(InvalidationMessage message) {
+        if (!config.enabled() || origin.equals(message.getOrigin())) {
+            return false;
+        }
+        boolean added;
+        synchronized (received) {
+            added = received.add(message.getKey());
+        }
+        if (!added) {
+            LOGGER.debug("Dropping duplicate invalidation {} of {}", message.getSequence(), message.getOrigin());
+            return false;
+        }
+        Origin sender;
+        synchronized (origins) {
+            sender = origins.computeIfAbsent(message.getOrigin(), key -> new Origin());
+        }
+        long messageSequence = message.getSequence();
+        synchronized (sender) {
+            if (sender.nextSequence == 0 || messageSequence == sender.nextSequence) {
+                // the first message of the origin this instance receives, or the next one
+                deliver(message);
+                sender.nextSequence = messageSequence + 1;
+                deliverWaiting(sender);
+            } else if (messageSequence < sender.nextSequence) {
+                // skipped after the ordering timeout
+                deliver(message);
+            } else {
+                sender.waiting.put(messageSequence, message);
+                scheduler.schedule(() -> skipMissing(sender, messageSequence), config.orderingTimeoutMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+        return true;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Stops waiting for the messages of an origin before the given one, if it is still waiting, and applies the waiting messages
+     * up to it.
+     */
+    private void skipMissing(Origin sender, long messageSequence) {
+        synchronized (sender) {
+            if (!sender.waiting.containsKey(messageSequence)) {
+                return;
+            }
+            LOGGER.warn("Skipping invalidations {} to {} of an origin, they did not arrive in time", sender.nextSequence,
+                    sender.waiting.firstKey() - 1);
+            while (!sender.waiting.isEmpty() && sender.waiting.firstKey() <= messageSequence) {
+                sender.nextSequence = sender.waiting.firstKey();
+                deliverWaiting(sender);
+            }
+        }
+    }
+
+    private void deliverWaiting(Origin sender) {
+        InvalidationMessage next;
+        while ((next = sender.waiting.remove(sender.nextSequence)) != null) {
+            deliver(next);
+            sender.nextSequence++;
+        }
+    }
+
+    private void deliver(InvalidationMessage message) {
+        if (pair(message.getContentKey(), false)) {
+            LOGGER.debug("Not applying invalidation {} of {}, it was computed locally", message.getSequence(), message.getOrigin());
+            return;
+        }
+        apply(message);
+    }
+
+    /**
+     * Pairs an invalidation computed locally with an equal one received from a peer within the dedupe window, or the other way
+     * around. Returns true if a counterpart was found and consumed, otherwise the invalidation is remembered as unpaired.
+     */
+    private boolean pair(String contentKey, boolean local) {
+        long now = System.currentTimeMillis();
+        long expiry = now - TimeUnit.SECONDS.toMillis(config.dedupeWindowSeconds());
+        synchronized (pairings) {
+            Pairing pairing = pairings.computeIfAbsent(contentKey, key -> new Pairing());
+            pairing.expire(expiry);
+            Deque<Long> counterparts = local ? pairing.received : pairing.computed;
+            if (!counterparts.isEmpty()) {
+                counterparts.removeFirst();
+                return true;
+            }
+            (local ? pairing.computed : pairing.received).addLast(now);
+            return false;
+        }
+    }
+
+    private void apply(InvalidationMessage message) {
+        String[] patterns = message.getPatterns().toArray(new String[0]);
+        List<Callable<Void>> tasks = new ArrayList<>(graphqlClients.size());
+        for (GraphqlClient graphqlClient : graphqlClients) {
+            tasks.add(() -> {
+                // the strategies do not know the store view, apply the patterns to the caches of all store views
+                graphqlClient.invalidateCache(null, null, patterns);
+                return null;
+            });
+        }
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        InvalidationEvents.post(eventAdmin, message.getInvalidationType(), message.getIdentifiers());
+    }
+
+    private static final class Origin {
+        private long nextSequence;
+        private final SortedMap<Long, InvalidationMessage> waiting = new TreeMap<>();
+    }
+
+    /**
+     * The times of the unpaired invalidations with the same content, computed locally and received from peers.
+     */
+    private static final class Pairing {
+        private final Deque<Long> computed = new ArrayDeque<>();
+        private final Deque<Long> received = new ArrayDeque<>();
+
+        void expire(long expiry) {
+            while (!computed.isEmpty() && computed.peekFirst() < expiry) {
+                computed.removeFirst();
+            }
+            while (!received.isEmpty() && received.peekFirst() < expiry) {
+                received.removeFirst();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Helper to publish the identifiers of cache invalidation requests as OSGi events, so that other in-memory data derived from
+ * commerce data can be kept current by the same invalidation requests. The events are posted by the
+ * {@link InvalidationCommandListener} for each invalidation command and by the {@link InvalidationDistributor} for each received
+ * invalidation.
+ *
+ * <p>Events are posted asynchronously to the topic {@code com/venia/commerce/cacheinvalidation/<invalidationType>}, with the
+ * identifiers in the {@link #PROPERTY_IDENTIFIERS} property.</p>
+ */
+public final class InvalidationEvents {
+
+    public static final String TOPIC_BASE = "com/venia/commerce/cacheinvalidation";
+    public static final String TOPIC_ALL = TOPIC_BASE + "/*";
+    public static final String PROPERTY_INVALIDATION_TYPE = "invalidationType";
+    public static final String PROPERTY_IDENTIFIERS = "identifiers";
+
+    private InvalidationEvents() {
+    }
+
+    public static String topic(String invalidationType) {
+        return TOPIC_BASE + "/" + invalidationType;
+    }
+
+    public static void post(EventAdmin eventAdmin, String invalidationType, String[] identifiers) {
+        if (eventAdmin == null || identifiers == null || identifiers.length == 0 || DryRun.isActive()) {
+            return;
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(PROPERTY_INVALIDATION_TYPE, invalidationType);
+        properties.put(PROPERTY_IDENTIFIERS, identifiers.clone());
+        eventAdmin.postEvent(new Event(topic(invalidationType), properties));
+    }
+
+    public static String getInvalidationType(Event event) {
+        return (String) event.getProperty(PROPERTY_INVALIDATION_TYPE);
+    }
+
+    public static List<String> getIdentifiers(Event event) {
+        Object identifiers = event.getProperty(PROPERTY_IDENTIFIERS);
+        if (!(identifiers instanceof String[])) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream((String[]) identifiers).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationStrategy;
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.DispatcherCacheInvalidationStrategy;
+import com.adobe.cq.commerce.core.components.client.MagentoGraphqlClient;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageManager;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This service evaluates a cache invalidation request without performing it: the registered strategies of each invalidation
+ * type compute their GraphQL cache patterns and dispatcher paths in a {@link DryRun}. Heavy
+ * invalidations, for example after a catalog import, can then be scheduled off-peak.
+ *
+ * <p>The GraphQL client does not expose its cache entries, so its impact is reported as the patterns the CIF core would apply.
+ * Resolving the dispatcher paths queries the commerce backend like a real invalidation does.</p>
+ */
+@Component(service = InvalidationImpactEstimator.class)
+public class InvalidationImpactEstimator {
+
+    private final List<CacheInvalidationStrategy> strategies = new CopyOnWriteArrayList<>();
+
+    @Reference(
+            service = CacheInvalidationStrategy.class,
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC)
+    protected void bindStrategy(CacheInvalidationStrategy strategy) {
+        strategies.add(strategy);
+    }
+
+    protected void unbindStrategy(CacheInvalidationStrategy strategy) {
+        strategies.remove(strategy);
+    }
+
+    @Reference(
+            service = DispatcherCacheInvalidationStrategy.class,
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC)
+    protected void bindDispatcherStrategy(DispatcherCacheInvalidationStrategy strategy) {
+        strategies.add(strategy);
+    }
+
+    protected void unbindDispatcherStrategy(DispatcherCacheInvalidationStrategy strategy) {
+        strategies.remove(strategy);
+    }
+
+    /**
+     * Evaluates the invalidation of the given identifiers per invalidation type for the given store.
+     *
+     * @param resolver the resource resolver used to resolve the dispatcher paths
+     * @param storePath the path of the store root page
+     * @param parameters the identifiers per invalidation type
+     * @param sampleSize the maximum number of patterns and paths returned per invalidation type
+     * @return the impact per invalidation type, in the order of the parameters
+     */
+    public List<Impact> estimate(ResourceResolver resolver, String storePath, Map<String, List<String>> parameters, int sampleSize) {
+        return DryRun.run(() -> {
+            Context context = new Context(resolver, storePath);
+            List<Impact> impacts = new ArrayList<>(parameters.size());
+            parameters.forEach((type, identifiers) -> impacts.add(estimate(context, type, identifiers, Math.max(0, sampleSize))));
+            return impacts;
+        });
+    }
+
+    private Impact estimate(Context context, String invalidationType, List<String> identifiers, int sampleSize) {
+        Impact impact = new Impact(invalidationType, identifiers.size());
+        String[] parameters = identifiers.toArray(new String[0]);
+        Set<String> patterns = new LinkedHashSet<>();
+        Set<String> paths = new LinkedHashSet<>();
+        // a strategy may be registered under both interfaces
+        Map<CacheInvalidationStrategy, Boolean> evaluated = new IdentityHashMap<>();
+        for (CacheInvalidationStrategy strategy : strategies) {
+            if (!invalidationType.equals(strategy.getInvalidationType()) || evaluated.put(strategy, Boolean.TRUE) != null) {
+                continue;
+            }
+            impact.strategies++;
+            try {
+                List<String> strategyPatterns = strategy.getPatterns(parameters);
+                if (strategyPatterns != null) {
+                    patterns.addAll(strategyPatterns);
+                }
+                if (strategy instanceof DispatcherCacheInvalidationStrategy) {
+                    context.parameters = identifiers;
+                    List<String> strategyPaths = ((DispatcherCacheInvalidationStrategy) strategy).getPathsToInvalidate(context);
+                    if (strategyPaths != null) {
+                        paths.addAll(strategyPaths);
+                    }
+                }
+            } catch (RuntimeException e) {
+                impact.errors.add(strategy.getClass().getName() + ": " + e.getMessage());
+            }
+        }
+        impact.patterns = patterns.size();
+        impact.patternSample = sample(patterns, sampleSize);
+        impact.paths = paths.size();
+        impact.pathSample = sample(paths, sampleSize);
+        return impact;
+    }
+
+    private static List<String> sample(Set<String> values, int sampleSize) {
+        List<String> sample = new ArrayList<>(Math.min(values.size(), sampleSize));
+        for (String value : values) {
+            if (sample.size() >= sampleSize) {
+                break;
+            }
+            sample.add(value);
+        }
+        return sample;
+    }
+
+    /**
+     * The impact of the invalidation of one type.
+     */
+    public static final class Impact {
+        private final String invalidationType;
+        private final int identifiers;
+        private final List<String> errors = new ArrayList<>();
+        private int strategies;
+        private int patterns;
+        private List<String> patternSample = Collections.emptyList();
+        private int paths;
+        private List<String> pathSample = Collections.emptyList();
+
+        Impact(String invalidationType, int identifiers) {
+            this.invalidationType = invalidationType;
+            this.identifiers = identifiers;
+        }
+
+        public String getInvalidationType() {
+            return invalidationType;
+        }
+
+        public int getIdentifiers() {
+            return identifiers;
+        }
+
+        /**
+         * Returns the number of strategies registered for the invalidation type, 0 if the type is unknown.
+         */
+        public int getStrategies() {
+            return strategies;
+        }
+
+        /**
+         * Returns the number of distinct patterns applied to the GraphQL caches.
+         */
+        public int getPatterns() {
+            return patterns;
+        }
+
+        public List<String> getPatternSample() {
+            return patternSample;
+        }
+
+        /**
+         * Returns the number of distinct dispatcher paths that would be invalidated.
+         */
+        public int getPaths() {
+            return paths;
+        }
+
+        public List<String> getPathSample() {
+            return pathSample;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    private static final class Context implements CacheInvalidationContext {
+        private final ResourceResolver resolver;
+        private final String storePath;
+        private Page page;
+        private MagentoGraphqlClient graphqlClient;
+        private boolean resolved;
+        private List<String> parameters = Collections.emptyList();
+
+        Context(ResourceResolver resolver, String storePath) {
+            this.resolver = resolver;
+            this.storePath = storePath;
+        }
+
+        @Override
+        public Page getPage() {
+            resolve();
+            return page;
+        }
+
+        @Override
+        public ResourceResolver getResourceResolver() {
+            return resolver;
+        }
+
+        @Override
+        public List<String> getInvalidationParameters() {
+            return parameters;
+        }
+
+        @Override
+        public String getStorePath() {
+            return storePath;
+        }
+
+        @Override
+        public MagentoGraphqlClient getGraphqlClient() {
+            resolve();
+            return graphqlClient;
+        }
+
+        private void resolve() {
+            if (resolved) {
+                return;
+            }
+            resolved = true;
+            PageManager pageManager = resolver.adaptTo(PageManager.class);
+            page = pageManager != null ? pageManager.getContainingPage(storePath) : null;
+            Resource store = resolver.getResource(storePath);
+            // the same client the CIF core creates for the store of an invalidation request
+            graphqlClient = store != null ? store.adaptTo(MagentoGraphqlClient.class) : null;
+        }
+    }
+}
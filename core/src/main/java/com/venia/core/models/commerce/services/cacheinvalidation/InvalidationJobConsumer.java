@@ -0,0 +1,136 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobConsumer;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Processes the cache invalidation requests queued as Sling jobs by the
+ * {@link com.venia.core.models.commerce.servlets.CoalescedInvalidationServlet} and writes their invalidation commands with the
+ * {@link InvalidationCoalescer}.
+ *
+ * <p>The jobs are persisted in the repository, so accepted requests survive restarts. Every store has its own topic below
+ * {@link #TOPIC}, and the queue of these topics is configured as one ordered queue with retries per topic. This keeps the requests
+ * of every store in the order they were accepted, without a failing store holding up the others.</p>
+ *
+ * <p>When a job is processed, the requests of the jobs queued behind it for the same store are merged into it, so that a burst of
+ * requests results in one invalidation command. The job only succeeds once the merged command is written, otherwise it fails and
+ * is retried with the merged jobs still queued. The merged jobs are removed from the queue after the command is written.</p>
+ */
+@Component(
+        service = JobConsumer.class,
+        property = JobConsumer.PROPERTY_TOPICS + "=" + InvalidationJobConsumer.TOPIC + "/*")
+public class InvalidationJobConsumer implements JobConsumer {
+
+    public static final String TOPIC = InvalidationEvents.TOPIC_BASE + "/request";
+
+    static final String PROPERTY_STORE_PATH = "storePath";
+    static final String PROPERTY_INVALIDATE_ALL = "invalidateAll";
+    static final String PARAMETER_PREFIX = "parameter.";
+    static final int MAX_MERGED_JOBS = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationJobConsumer.class);
+
+    @Reference
+    private InvalidationCoalescer coalescer;
+
+    @Reference
+    private JobManager jobManager;
+
+    /**
+     * Returns the job topic of the invalidation requests of the given store, for example
+     * {@code com/venia/commerce/cacheinvalidation/request/content_venia_us_en} for {@code /content/venia/us/en}.
+     */
+    public static String getTopic(String storePath) {
+        return TOPIC + "/" + StringUtils.removeStart(storePath, "/").replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Returns the job properties of an invalidation request.
+     */
+    public static Map<String, Object> toJobProperties(String storePath, Map<String, List<String>> parameters, boolean invalidateAll) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(PROPERTY_STORE_PATH, storePath);
+        properties.put(PROPERTY_INVALIDATE_ALL, invalidateAll);
+        parameters.forEach((type, identifiers) -> properties.put(PARAMETER_PREFIX + type, identifiers.toArray(new String[0])));
+        return properties;
+    }
+
+    @Override
+    public JobResult process(Job job) {
+        String storePath = job.getProperty(PROPERTY_STORE_PATH, String.class);
+        if (StringUtils.isBlank(storePath)) {
+            LOGGER.warn("Cancelling cache invalidation job {} without store path", job.getId());
+            return JobResult.CANCEL;
+        }
+        Map<String, Set<String>> parameters = new LinkedHashMap<>();
+        boolean invalidateAll = addRequest(job, parameters);
+        List<Job> merged = new ArrayList<>();
+        for (Job queued : jobManager.findJobs(JobManager.QueryType.QUEUED, getTopic(storePath), MAX_MERGED_JOBS)) {
+            if (!queued.getId().equals(job.getId()) && storePath.equals(queued.getProperty(PROPERTY_STORE_PATH, String.class))) {
+                invalidateAll |= addRequest(queued, parameters);
+                merged.add(queued);
+            }
+        }
+        try {
+            coalescer.write(storePath, parameters, invalidateAll);
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.warn("Failed to write the invalidation command of job {} for {}: {}", job.getId(), storePath, e.getMessage());
+            return JobResult.FAILED;
+        }
+        for (Job queued : merged) {
+            // the request of the job is part of the written command
+            jobManager.removeJobById(queued.getId());
+        }
+        if (!merged.isEmpty()) {
+            LOGGER.debug("Merged {} queued invalidation jobs into job {} for {}", merged.size(), job.getId(), storePath);
+        }
+        return JobResult.OK;
+    }
+
+    /**
+     * Adds the identifiers of the request of a job to the given parameters and returns whether it invalidates all cache entries.
+     */
+    private static boolean addRequest(Job job, Map<String, Set<String>> parameters) {
+        for (String name : job.getPropertyNames()) {
+            if (name.startsWith(PARAMETER_PREFIX)) {
+                String[] identifiers = job.getProperty(name, String[].class);
+                if (identifiers != null) {
+                    parameters.computeIfAbsent(name.substring(PARAMETER_PREFIX.length()), type -> new LinkedHashSet<>())
+                            .addAll(Arrays.asList(identifiers));
+                }
+            }
+        }
+        return job.getProperty(PROPERTY_INVALIDATE_ALL, false);
+    }
+}
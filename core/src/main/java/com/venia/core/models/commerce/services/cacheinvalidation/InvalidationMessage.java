@@ -0,0 +1,163 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An invalidation computed by a Venia strategy on one instance and distributed to the other instances by the
+ * {@link InvalidationDistributor}: the invalidation type, its identifiers and the patterns for the GraphQL caches.
+ *
+ * <p>Messages are identified by their origin, the instance and activation of the distributor that sent them, and a sequence
+ * number that grows with every message of the origin. Instances are immutable.</p>
+ */
+public final class InvalidationMessage {
+
+    static final String ORIGIN = "origin";
+    static final String SEQUENCE = "sequence";
+    static final String INVALIDATION_TYPE = "invalidationType";
+    static final String IDENTIFIERS = "identifiers";
+    static final String PATTERNS = "patterns";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String origin;
+    private final long sequence;
+    private final String invalidationType;
+    private final String[] identifiers;
+    private final List<String> patterns;
+
+    public InvalidationMessage(String origin, long sequence, String invalidationType, String[] identifiers, List<String> patterns) {
+        this.origin = Objects.requireNonNull(origin);
+        this.sequence = sequence;
+        this.invalidationType = Objects.requireNonNull(invalidationType);
+        this.identifiers = identifiers != null ? identifiers.clone() : new String[0];
+        this.patterns = patterns != null ? Collections.unmodifiableList(new ArrayList<>(patterns)) : Collections.emptyList();
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getInvalidationType() {
+        return invalidationType;
+    }
+
+    public String[] getIdentifiers() {
+        return identifiers.clone();
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Returns the key that identifies this message on all instances, made of its origin and sequence number.
+     */
+    public String getKey() {
+        return origin + '\u0000' + sequence;
+    }
+
+    /**
+     * Returns the key of the invalidation this message carries, made of its invalidation type and identifiers, independent of
+     * the instance that computed it.
+     */
+    public String getContentKey() {
+        String[] sorted = identifiers.clone();
+        Arrays.sort(sorted, Comparator.nullsFirst(Comparator.naturalOrder()));
+        return invalidationType + '\u0000' + String.join("\u0000", sorted);
+    }
+
+    public String toJson() {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeStringField(ORIGIN, origin);
+            json.writeNumberField(SEQUENCE, sequence);
+            json.writeStringField(INVALIDATION_TYPE, invalidationType);
+            json.writeArrayFieldStart(IDENTIFIERS);
+            for (String identifier : identifiers) {
+                json.writeString(identifier);
+            }
+            json.writeEndArray();
+            json.writeArrayFieldStart(PATTERNS);
+            for (String pattern : patterns) {
+                json.writeString(pattern);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            // writing to a string does not fail
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Parses a message written by {@link #toJson()}.
+     *
+     * @throws IOException if the JSON is invalid or the origin or invalidation type is missing
+     */
+    public static InvalidationMessage fromJson(String json) throws IOException {
+        String origin = null;
+        long sequence = 0;
+        String invalidationType = null;
+        List<String> identifiers = new ArrayList<>();
+        List<String> patterns = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (ORIGIN.equals(field)) {
+                    origin = parser.getValueAsString();
+                } else if (SEQUENCE.equals(field)) {
+                    sequence = parser.getValueAsLong();
+                } else if (INVALIDATION_TYPE.equals(field)) {
+                    invalidationType = parser.getValueAsString();
+                } else if (value == JsonToken.START_ARRAY && (IDENTIFIERS.equals(field) || PATTERNS.equals(field))) {
+                    List<String> target = IDENTIFIERS.equals(field) ? identifiers : patterns;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        target.add(parser.getValueAsString());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (origin == null || invalidationType == null) {
+            throw new IOException("Missing origin or invalidation type");
+        }
+        return new InvalidationMessage(origin, sequence, invalidationType, identifiers.toArray(new String[0]), patterns);
+    }
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+/**
+ * Distributes the invalidations of the {@link InvalidationDistributor} to the other instances of a farm, which hand them to
+ * their own distributor with {@link InvalidationDistributor#receive(InvalidationMessage)}.
+ *
+ * <p>{@link HttpInvalidationTransport} posts the messages to the configured peers, {@link LocalInvalidationTransport} delivers
+ * them in the same JVM, for example in tests. Implementations must not block the calling invalidation strategy for longer than it
+ * takes to hand the message over, and may deliver a message more than once and out of order: the receiving distributor drops
+ * duplicates and stale messages.</p>
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Sends the message to all other instances.
+     */
+    void send(InvalidationMessage message);
+}
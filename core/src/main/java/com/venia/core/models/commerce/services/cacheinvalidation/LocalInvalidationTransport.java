@@ -0,0 +1,42 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An {@link InvalidationTransport} that delivers messages synchronously to receivers in the same JVM, a stand-in for the
+ * {@link HttpInvalidationTransport} in tests and single instance setups.
+ */
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+    private final List<Consumer<InvalidationMessage>> receivers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds a receiver, typically the {@link InvalidationDistributor#receive(InvalidationMessage)} of another distributor.
+     */
+    public void connect(Consumer<InvalidationMessage> receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void send(InvalidationMessage message) {
+        for (Consumer<InvalidationMessage> receiver : receivers) {
+            receiver.accept(message);
+        }
+    }
+}
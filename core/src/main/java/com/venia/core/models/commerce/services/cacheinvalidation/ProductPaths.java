@@ -0,0 +1,95 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.core.components.services.urls.CategoryUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.ProductUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
+import com.adobe.cq.commerce.magento.graphql.CategoryInterface;
+import com.adobe.cq.commerce.magento.graphql.Operations;
+import com.adobe.cq.commerce.magento.graphql.ProductAttributeFilterInput;
+import com.adobe.cq.commerce.magento.graphql.ProductInterface;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.UrlRewrite;
+import com.day.cq.wcm.api.Page;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves the dispatcher paths of the products matched by a product filter: the product page URLs for the url_key and every
+ * url_rewrite of a product plus the category page URLs of its categories, as built by the {@link UrlProvider}.
+ */
+final class ProductPaths {
+
+    /** The maximum page size of product searches allowed by Magento, larger page sizes are capped without an error. */
+    static final int MAX_PAGE_SIZE = 300;
+
+    private ProductPaths() {
+    }
+
+    /**
+     * Builds the GraphQL query for the total count and for the url keys, url rewrites and categories of one page of the products
+     * matched by the given filter.
+     */
+    static String buildQuery(ProductAttributeFilterInput filter, int pageSize, int currentPage) {
+        return Operations.query(query -> query
+                .products(args -> args.filter(filter).pageSize(pageSize).currentPage(currentPage), products -> products
+                        .totalCount()
+                        .items(item -> item
+                                .sku()
+                                .urlKey()
+                                .urlRewrites(rewrite -> rewrite.url())
+                                .categories(category -> category.uid().urlKey().urlPath())))).toString();
+    }
+
+    /**
+     * Returns the distinct paths of the products in the given query result.
+     */
+    static List<String> resolve(Query data, Page page, UrlProvider urlProvider) {
+        if (data == null || data.getProducts() == null || data.getProducts().getItems() == null) {
+            return Collections.emptyList();
+        }
+
+        Set<String> paths = new LinkedHashSet<>();
+        for (ProductInterface product : data.getProducts().getItems()) {
+            ProductUrlFormat.Params params = new ProductUrlFormat.Params(product);
+            params.setUrlRewrites(Collections.emptyList());
+            addPath(paths, urlProvider.toProductUrl(null, page, params));
+            if (product.getUrlRewrites() != null) {
+                for (UrlRewrite urlRewrite : product.getUrlRewrites()) {
+                    ProductUrlFormat.Params rewriteParams = new ProductUrlFormat.Params(params);
+                    rewriteParams.setUrlRewrites(Collections.singletonList(urlRewrite));
+                    addPath(paths, urlProvider.toProductUrl(null, page, rewriteParams));
+                }
+            }
+            if (product.getCategories() != null) {
+                for (CategoryInterface category : product.getCategories()) {
+                    addPath(paths, urlProvider.formatCategoryUrl(null, page, new CategoryUrlFormat.Params(category)));
+                }
+            }
+        }
+        return new ArrayList<>(paths);
+    }
+
+    private static void addPath(Set<String> paths, String path) {
+        if (path != null && !path.isEmpty()) {
+            paths.add(path);
+        }
+    }
+}
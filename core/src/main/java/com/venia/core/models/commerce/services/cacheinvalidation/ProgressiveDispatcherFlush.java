@@ -0,0 +1,221 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageManager;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This service flushes the dispatcher cache of an entire store subtree by subtree over a time window, instead of all cached
+ * pages at once. The render farm and the commerce backend then see a steady re-render load instead of a spike.
+ *
+ * <p>The store is split into the page subtrees up to the configured depth below the store root. A page with child pages above
+ * that depth is flushed on its own (its {@code .html} handle, which includes its selector and suffix renderings such as the
+ * categories of a category page), its children as separate subtrees. The flush requests are the same as the ones of the CIF
+ * core ({@code CQ-Action: Delete}, {@code CQ-Action-Scope: ResourceOnly}) and spread evenly over the window, but not sent faster
+ * than the configured rate. A new flush of a store restarts its pending flush.</p>
+ */
+@Component(service = ProgressiveDispatcherFlush.class)
+@Designate(ocd = ProgressiveDispatcherFlush.Configuration.class)
+public class ProgressiveDispatcherFlush {
+
+    @ObjectClassDefinition(name = "Venia Progressive Dispatcher Flush")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled", description = "Flush entire stores subtree by subtree over the flush window")
+        boolean enabled() default false;
+
+        @AttributeDefinition(name = "Flush window", description = "Time in seconds over which the subtrees of a store are flushed")
+        long windowSeconds() default 300;
+
+        @AttributeDefinition(name = "Requests per second", description = "Maximum rate of flush requests")
+        int requestsPerSecond() default 2;
+
+        @AttributeDefinition(name = "Subtree depth", description = "Depth of the page subtrees below the store root that are flushed separately")
+        int subtreeDepth() default 2;
+
+        @AttributeDefinition(name = "Dispatcher base URL",
+                description = "URL of the dispatcher, defaults to the dispatcherBaseUrl of the CIF cache invalidation configuration")
+        String dispatcherBaseUrl() default "";
+
+        @AttributeDefinition(name = "Timeout", description = "Connect and read timeout of a flush request in milliseconds")
+        int timeoutMillis() default 10000;
+    }
+
+    static final String INVALIDATE_PATH = "/dispatcher/invalidate.cache";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProgressiveDispatcherFlush.class);
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile ConfigurationAdmin configurationAdmin;
+
+    private final Map<String, List<ScheduledFuture<?>>> flushes = new LinkedHashMap<>();
+    private Configuration config;
+    private ScheduledExecutorService scheduler;
+
+    @Activate
+    protected void activate(Configuration config) {
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "venia-progressive-flush"));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Schedules the progressive flush of the given store, unless this is a {@link DryRun}.
+     *
+     * @return the handles that are flushed, in order
+     */
+    public List<String> flush(String storePath, ResourceResolver resolver) {
+        if (!config.enabled()) {
+            return Collections.emptyList();
+        }
+        List<String> handles = getHandles(resolver, storePath);
+        if (handles.isEmpty() || DryRun.isActive()) {
+            return handles;
+        }
+        long windowMillis = TimeUnit.SECONDS.toMillis(Math.max(0, config.windowSeconds()));
+        long minIntervalMillis = 1000L / Math.max(1, config.requestsPerSecond());
+        long intervalMillis = Math.max(minIntervalMillis, handles.size() > 1 ? windowMillis / (handles.size() - 1) : 0);
+        synchronized (flushes) {
+            cancel(storePath);
+            List<ScheduledFuture<?>> scheduled = new ArrayList<>(handles.size());
+            for (int i = 0; i < handles.size(); i++) {
+                String handle = handles.get(i);
+                scheduled.add(scheduler.schedule(() -> flushHandle(storePath, handle), i * intervalMillis, TimeUnit.MILLISECONDS));
+            }
+            flushes.put(storePath, scheduled);
+        }
+        LOGGER.info("Flushing {} subtrees of {} every {} ms", handles.size(), storePath, intervalMillis);
+        return handles;
+    }
+
+    /**
+     * Returns the number of subtrees of the given store that are still to be flushed.
+     */
+    public int getPending(String storePath) {
+        synchronized (flushes) {
+            List<ScheduledFuture<?>> scheduled = flushes.get(storePath);
+            return scheduled != null ? (int) scheduled.stream().filter(future -> !future.isDone()).count() : 0;
+        }
+    }
+
+    /**
+     * Returns the dispatcher handles of the subtrees of the given store, the store root page first.
+     */
+    List<String> getHandles(ResourceResolver resolver, String storePath) {
+        PageManager pageManager = resolver.adaptTo(PageManager.class);
+        Page store = pageManager != null ? pageManager.getPage(storePath) : null;
+        if (store == null) {
+            return Collections.emptyList();
+        }
+        List<String> handles = new ArrayList<>();
+        addHandles(store, 0, Math.max(0, config.subtreeDepth()), handles);
+        return handles;
+    }
+
+    private static void addHandles(Page page, int depth, int maxDepth, List<String> handles) {
+        Iterator<Page> children = depth < maxDepth ? page.listChildren() : Collections.emptyIterator();
+        if (!children.hasNext()) {
+            handles.add(page.getPath());
+            return;
+        }
+        handles.add(page.getPath() + ".html");
+        while (children.hasNext()) {
+            addHandles(children.next(), depth + 1, maxDepth, handles);
+        }
+    }
+
+    private void flushHandle(String storePath, String handle) {
+        String baseUrl = StringUtils.removeEnd(DispatcherCacheWarmer.getDispatcherBaseUrl(config.dispatcherBaseUrl(), configurationAdmin),
+                "/");
+        if (StringUtils.isBlank(baseUrl)) {
+            LOGGER.warn("No dispatcher base URL configured, cannot flush {}", handle);
+            return;
+        }
+        try {
+            int status = post(baseUrl + INVALIDATE_PATH, handle);
+            if (status >= 300) {
+                LOGGER.warn("Flushing {} of {} failed with status {}", handle, storePath, status);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Flushing {} of {} failed: {}", handle, storePath, e.getMessage());
+        }
+    }
+
+    private void cancel(String storePath) {
+        List<ScheduledFuture<?>> scheduled = flushes.remove(storePath);
+        if (scheduled != null) {
+            scheduled.forEach(future -> future.cancel(false));
+        }
+    }
+
+    protected int post(String url, String handle) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(config.timeoutMillis());
+            connection.setReadTimeout(config.timeoutMillis());
+            connection.setRequestProperty("CQ-Action", "Delete");
+            connection.setRequestProperty("CQ-Handle", handle);
+            connection.setRequestProperty("CQ-Action-Scope", "ResourceOnly");
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                body.close();
+            }
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import javax.servlet.ServletRequest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SKUs and category UIDs fetched while a page is rendered. The dependencies are collected in a request attribute, which is
+ * shared by the included component requests: the {@link com.venia.core.models.commerce.servlets.RenderDependencyFilter}
+ * starts the recording for page requests and components record the data their retrievers fetch. Recording is a no-op for
+ * requests without a started recording.
+ */
+public final class RenderDependencies {
+
+    static final String ATTRIBUTE = RenderDependencies.class.getName();
+
+    private final Set<String> skus = ConcurrentHashMap.newKeySet();
+    private final Set<String> categories = ConcurrentHashMap.newKeySet();
+
+    private RenderDependencies() {
+    }
+
+    /**
+     * Starts recording the dependencies of the given request.
+     */
+    public static RenderDependencies start(ServletRequest request) {
+        RenderDependencies dependencies = new RenderDependencies();
+        request.setAttribute(ATTRIBUTE, dependencies);
+        return dependencies;
+    }
+
+    /**
+     * Stops recording the dependencies of the given request.
+     */
+    public static void stop(ServletRequest request) {
+        request.removeAttribute(ATTRIBUTE);
+    }
+
+    public static void recordSkus(ServletRequest request, Collection<String> skus) {
+        RenderDependencies dependencies = get(request);
+        if (dependencies != null && skus != null) {
+            addAll(dependencies.skus, skus);
+        }
+    }
+
+    public static void recordSku(ServletRequest request, String sku) {
+        recordSkus(request, Collections.singletonList(sku));
+    }
+
+    public static void recordCategories(ServletRequest request, Collection<String> uids) {
+        RenderDependencies dependencies = get(request);
+        if (dependencies != null && uids != null) {
+            addAll(dependencies.categories, uids);
+        }
+    }
+
+    public static void recordCategory(ServletRequest request, String uid) {
+        recordCategories(request, Collections.singletonList(uid));
+    }
+
+    public Set<String> getSkus() {
+        return Collections.unmodifiableSet(skus);
+    }
+
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(categories);
+    }
+
+    private static RenderDependencies get(ServletRequest request) {
+        Object attribute = request != null ? request.getAttribute(ATTRIBUTE) : null;
+        return attribute instanceof RenderDependencies ? (RenderDependencies) attribute : null;
+    }
+
+    private static void addAll(Set<String> target, Collection<String> values) {
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                target.add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.graphql.client.GraphqlClient;
+import com.day.cq.contentsync.handler.util.RequestResponseFactory;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This service refreshes the GraphQL cache entries of hot products and categories shortly before they expire, so that missed
+ * invalidations leave them stale for at most the TTL of the GraphQL client caches and shoppers do not see the latency of the
+ * cold entries.
+ *
+ * <p>The GraphQL caches of the CIF client cannot be read, so the age of their entries is tracked from the render dependencies
+ * recorded by the {@link com.venia.core.models.commerce.servlets.RenderDependencyFilter}: an entry of a SKU or category UID is
+ * assumed to be filled by the first render that fetches it after an invalidation or after it expired, and every further render
+ * counts as a hit. The last {@value #MAX_PATHS_PER_IDENTIFIER} request paths that fetched an identifier are tracked with it.
+ * Invalidation events of the Venia strategies reset the tracked identifiers, so only identifiers that were not invalidated
+ * within the soft TTL are refreshed.</p>
+ *
+ * <p>The entries of the CIF client cannot be filled directly, and a render with valid entries only hits them, so a "refresh"
+ * is an invalidation of the GraphQL cache entries followed by a render. When the scheduler runs, the identifiers that are older
+ * than the soft TTL (the TTL minus the refresh-ahead time) and were hit often enough are invalidated in the GraphQL caches of
+ * this instance only, and the pages that fetched them are rendered right away with an internal request, which fills the
+ * GraphQL caches before the old entries would have expired. The dispatcher cache is not flushed, the cached pages keep being
+ * served. Refreshing is disabled by default.</p>
+ */
+@Component(
+        service = { SoftTtlRefresher.class, EventHandler.class, Runnable.class },
+        property = {
+                EventConstants.EVENT_TOPIC + "=" + InvalidationEvents.TOPIC_ALL,
+                "scheduler.concurrent:Boolean=false"
+        })
+@Designate(ocd = SoftTtlRefresher.Configuration.class)
+public class SoftTtlRefresher implements EventHandler, Runnable {
+
+    @ObjectClassDefinition(name = "Venia GraphQL Soft TTL Refresher")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled",
+                description = "Refresh the GraphQL cache entries of hot identifiers before they expire by rendering the pages that fetched them")
+        boolean enabled() default false;
+
+        @AttributeDefinition(name = "TTL", description = "Time to live in seconds of the GraphQL client cache entries")
+        long ttlSeconds() default 3600;
+
+        @AttributeDefinition(name = "Refresh ahead", description = "Time in seconds before the TTL at which hot entries are refreshed")
+        long refreshAheadSeconds() default 300;
+
+        @AttributeDefinition(name = "Min hits", description = "Number of renders after which an entry is refreshed ahead")
+        int minHits() default 3;
+
+        @AttributeDefinition(name = "Max tracked", description = "Maximum number of tracked identifiers, the least recently rendered are dropped")
+        int maxTracked() default 10000;
+
+        @AttributeDefinition(name = "Max refreshes", description = "Maximum number of identifiers refreshed per run")
+        int maxRefreshes() default 500;
+
+        @AttributeDefinition(name = "Period", description = "Period in seconds of the refresh runs")
+        long scheduler_period() default 60;
+    }
+
+    static final String SUBSERVICE = "venia-cache-refresh";
+    static final int MAX_PATHS_PER_IDENTIFIER = 3;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SoftTtlRefresher.class);
+    private static final Set<String> SKU_INVALIDATION_TYPES = new HashSet<>(Arrays.asList("productSkus", "customProductSkus"));
+    private static final Set<String> CATEGORY_INVALIDATION_TYPES = new HashSet<>(Arrays.asList("categoryUids", "customCategoryUids"));
+
+    @Reference
+    private ResourceResolverFactory resolverFactory;
+
+    @Reference
+    private SlingRequestProcessor requestProcessor;
+
+    @Reference
+    private RequestResponseFactory requestResponseFactory;
+
+    private final List<GraphqlClient> graphqlClients = new CopyOnWriteArrayList<>();
+    private Configuration configuration;
+    private Map<String, Tracked> tracked = createTracked(1);
+
+    @Reference(
+            service = GraphqlClient.class,
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC)
+    protected void bindGraphqlClient(GraphqlClient graphqlClient) {
+        graphqlClients.add(graphqlClient);
+    }
+
+    protected void unbindGraphqlClient(GraphqlClient graphqlClient) {
+        graphqlClients.remove(graphqlClient);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Configuration configuration) {
+        this.configuration = configuration;
+        synchronized (this) {
+            tracked = createTracked(Math.max(1, configuration.maxTracked()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return configuration.enabled();
+    }
+
+    /**
+     * Records a render of the given request path of a page of the given store that fetched the given SKUs and category UIDs.
+     */
+    public void recordRendered(String storePath, String requestPath, Collection<String> skus, Collection<String> uids) {
+        if (!configuration.enabled() || storePath == null || requestPath == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long ttlMillis = TimeUnit.SECONDS.toMillis(configuration.ttlSeconds());
+        synchronized (this) {
+            record(storePath, requestPath, false, skus, now, ttlMillis);
+            record(storePath, requestPath, true, uids, now, ttlMillis);
+        }
+    }
+
+    public synchronized int size() {
+        return tracked.size();
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        String invalidationType = InvalidationEvents.getInvalidationType(event);
+        boolean category = CATEGORY_INVALIDATION_TYPES.contains(invalidationType);
+        if (!category && !SKU_INVALIDATION_TYPES.contains(invalidationType)) {
+            return;
+        }
+        Set<String> identifiers = new HashSet<>(InvalidationEvents.getIdentifiers(event));
+        synchronized (this) {
+            // the entries are filled again by the next render
+            tracked.values().removeIf(entry -> entry.category == category && identifiers.contains(entry.identifier));
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!configuration.enabled()) {
+            return;
+        }
+        Refresh refresh = collectDue(System.currentTimeMillis());
+        if (refresh.paths.isEmpty()) {
+            return;
+        }
+        List<String> patterns = new ArrayList<>();
+        patterns.addAll(InvalidationBatches.patterns(IdentifierPattern.SKU_FIELD, refresh.skus.toArray(new String[0]),
+                InvalidationBatches.DEFAULT_CHUNK_SIZE));
+        patterns.addAll(InvalidationBatches.patterns(IdentifierPattern.CATEGORY_UID_FIELD, refresh.categoryUids.toArray(new String[0]),
+                InvalidationBatches.DEFAULT_CHUNK_SIZE));
+        String[] patternArray = patterns.toArray(new String[0]);
+        for (GraphqlClient graphqlClient : graphqlClients) {
+            // the store views of the renders are not tracked, apply the patterns to the caches of all store views
+            graphqlClient.invalidateCache(null, null, patternArray);
+        }
+        int rendered = render(refresh.paths);
+        LOGGER.debug("Refreshed the GraphQL cache entries of {} SKUs and {} category UIDs by rendering {} of {} pages",
+                refresh.skus.size(), refresh.categoryUids.size(), rendered, refresh.paths.size());
+    }
+
+    /**
+     * Removes the hot identifiers that are due for a refresh and returns them, the most hit first, with the request paths that
+     * fetched them.
+     */
+    Refresh collectDue(long now) {
+        long ttlMillis = TimeUnit.SECONDS.toMillis(configuration.ttlSeconds());
+        long softTtlMillis = ttlMillis - TimeUnit.SECONDS.toMillis(configuration.refreshAheadSeconds());
+        List<Tracked> due = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Tracked> iterator = tracked.values().iterator(); iterator.hasNext();) {
+                Tracked entry = iterator.next();
+                long age = now - entry.filledAt;
+                if (age >= ttlMillis) {
+                    // expired on its own, it is filled again by the next render
+                    iterator.remove();
+                } else if (age >= softTtlMillis && entry.hits >= configuration.minHits()) {
+                    due.add(entry);
+                }
+            }
+            due.sort(Comparator.comparingInt((Tracked entry) -> entry.hits).reversed());
+            if (due.size() > configuration.maxRefreshes()) {
+                due = new ArrayList<>(due.subList(0, Math.max(0, configuration.maxRefreshes())));
+            }
+            due.forEach(entry -> tracked.remove(entry.key));
+        }
+
+        Refresh refresh = new Refresh();
+        for (Tracked entry : due) {
+            (entry.category ? refresh.categoryUids : refresh.skus).add(entry.identifier);
+            refresh.paths.addAll(entry.paths);
+        }
+        return refresh;
+    }
+
+    /**
+     * Renders the given request paths with a service user and discards the responses.
+     *
+     * @return the number of paths rendered successfully
+     */
+    private int render(Collection<String> paths) {
+        int rendered = 0;
+        Map<String, Object> authInfo = Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE);
+        try (ResourceResolver resolver = resolverFactory.getServiceResourceResolver(authInfo)) {
+            for (String path : paths) {
+                try {
+                    HttpServletResponse response = requestResponseFactory.createResponse(NullOutputStream.NULL_OUTPUT_STREAM);
+                    requestProcessor.processRequest(requestResponseFactory.createRequest("GET", path), response, resolver);
+                    if (response.getStatus() < HttpServletResponse.SC_BAD_REQUEST) {
+                        rendered++;
+                    } else {
+                        LOGGER.debug("Rendering {} returned {}", path, response.getStatus());
+                    }
+                } catch (ServletException | IOException | RuntimeException e) {
+                    LOGGER.debug("Failed to render {}: {}", path, e.getMessage());
+                }
+            }
+        } catch (LoginException e) {
+            LOGGER.warn("Failed to render {} pages: {}", paths.size(), e.getMessage());
+        }
+        return rendered;
+    }
+
+    private void record(String storePath, String requestPath, boolean category, Collection<String> identifiers, long now,
+                        long ttlMillis) {
+        if (identifiers == null) {
+            return;
+        }
+        for (String identifier : identifiers) {
+            String key = storePath + (category ? "|c|" : "|p|") + identifier;
+            Tracked entry = tracked.get(key);
+            if (entry == null || now - entry.filledAt >= ttlMillis) {
+                entry = new Tracked(key, category, identifier, now);
+                tracked.put(key, entry);
+            } else {
+                entry.hits++;
+            }
+            // keep the most recent request paths
+            entry.paths.remove(requestPath);
+            entry.paths.add(requestPath);
+            if (entry.paths.size() > MAX_PATHS_PER_IDENTIFIER) {
+                entry.paths.remove(entry.paths.iterator().next());
+            }
+        }
+    }
+
+    private static Map<String, Tracked> createTracked(int maxTracked) {
+        return new LinkedHashMap<String, Tracked>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tracked> eldest) {
+                return size() > maxTracked;
+            }
+        };
+    }
+
+    /**
+     * The identifiers due for a refresh and the request paths that fetched them.
+     */
+    static final class Refresh {
+        final List<String> skus = new ArrayList<>();
+        final List<String> categoryUids = new ArrayList<>();
+        final Set<String> paths = new LinkedHashSet<>();
+    }
+
+    private static final class Tracked {
+        private final String key;
+        private final boolean category;
+        private final String identifier;
+        private final long filledAt;
+        private final Set<String> paths = new LinkedHashSet<>();
+        private int hits;
+
+        Tracked(String key, boolean category, String identifier, long filledAt) {
+            this.key = key;
+            this.category = category;
+            this.identifier = identifier;
+            this.filledAt = filledAt;
+        }
+    }
+}
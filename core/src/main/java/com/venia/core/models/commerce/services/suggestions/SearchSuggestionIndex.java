@@ -0,0 +1,330 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.services.suggestions;
+
+import com.adobe.cq.commerce.graphql.client.GraphqlClient;
+import com.adobe.cq.commerce.graphql.client.GraphqlRequest;
+import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
+import com.adobe.cq.commerce.graphql.client.RequestOptions;
+import com.adobe.cq.commerce.magento.graphql.FilterEqualTypeInput;
+import com.adobe.cq.commerce.magento.graphql.Operations;
+import com.adobe.cq.commerce.magento.graphql.ProductAttributeFilterInput;
+import com.adobe.cq.commerce.magento.graphql.ProductInterface;
+import com.adobe.cq.commerce.magento.graphql.ProductInterfaceQueryDefinition;
+import com.adobe.cq.commerce.magento.graphql.Products;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import com.adobe.cq.commerce.magento.graphql.gson.QueryDeserializer;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationEvents;
+import org.apache.http.message.BasicHeader;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This service keeps an in-memory {@link SuggestionTrie} of the product names and SKUs of the catalog, so that search suggestions
+ * can be answered without a request to the commerce backend.
+ *
+ * <p>The index is built by a paged sweep over the catalog when the service is activated and then periodically by the Sling
+ * scheduler. Sweeps requested while another one is queued are collapsed into the queued one. In between the index is kept current
+ * by the events of the Venia cache invalidation strategies: the products of invalidated SKUs and of invalidated categories are
+ * fetched again and replaced in the trie, without building it again. Products removed from the catalog are removed by their SKU
+ * invalidation, or else by the next sweep.</p>
+ *
+ * <p>The index covers the catalog of the configured store view only, see {@link #isIndexed(String)}.</p>
+ */
+@Component(
+        service = { SearchSuggestionIndex.class, EventHandler.class, Runnable.class },
+        property = {
+                EventConstants.EVENT_TOPIC + "=" + InvalidationEvents.TOPIC_ALL,
+                "scheduler.concurrent:Boolean=false"
+        })
+@Designate(ocd = SearchSuggestionIndex.Configuration.class)
+public class SearchSuggestionIndex implements EventHandler, Runnable {
+
+    @ObjectClassDefinition(name = "Venia Search Suggestion Index")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled", description = "Build and serve the in-memory search suggestion index")
+        boolean enabled() default false;
+
+        @AttributeDefinition(name = "GraphQL client", description = "Target filter of the GraphQL client used for the catalog sweep")
+        String graphqlClient_target() default "(identifier=default)";
+
+        @AttributeDefinition(name = "Store view", description = "The Magento store view code of the indexed catalog")
+        String storeView() default "default";
+
+        @AttributeDefinition(name = "Page size", description = "Number of products fetched per request of the catalog sweep")
+        int pageSize() default 200;
+
+        @AttributeDefinition(name = "Max pages", description = "Maximum number of pages fetched by a catalog sweep")
+        int maxPages() default 500;
+
+        @AttributeDefinition(name = "Rebuild period", description = "Period of the full catalog sweep in seconds")
+        long scheduler_period() default 3600;
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchSuggestionIndex.class);
+    private static final Set<String> SKU_INVALIDATION_TYPES = new HashSet<>(Arrays.asList("productSkus", "customProductSkus"));
+    private static final Set<String> CATEGORY_INVALIDATION_TYPES = new HashSet<>(Arrays.asList("categoryUids", "customCategoryUids"));
+    private static final ProductInterfaceQueryDefinition SUGGESTION_FIELDS = item -> item.sku().name().urlKey();
+
+    @Reference(name = "graphqlClient")
+    private GraphqlClient graphqlClient;
+
+    private Configuration configuration;
+    private ExecutorService executor;
+    private final Map<String, Suggestion> suggestionsBySku = new LinkedHashMap<>();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private volatile SuggestionTrie trie = SuggestionTrie.EMPTY;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        this.configuration = configuration;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "venia-search-suggestion-index"));
+        if (configuration.enabled()) {
+            scheduleRebuild();
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns true if the index is enabled and built from the catalog of the given store view.
+     */
+    public boolean isIndexed(String storeView) {
+        return configuration.enabled() && configuration.storeView().equals(storeView);
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions for the given query from the in-memory index.
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        return trie.suggest(query, limit);
+    }
+
+    public int size() {
+        return trie.size();
+    }
+
+    @Override
+    public void run() {
+        if (configuration.enabled()) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        if (!configuration.enabled()) {
+            return;
+        }
+        String invalidationType = InvalidationEvents.getInvalidationType(event);
+        List<String> identifiers = InvalidationEvents.getIdentifiers(event);
+        if (SKU_INVALIDATION_TYPES.contains(invalidationType)) {
+            executor.execute(() -> refresh(identifiers));
+        } else if (CATEGORY_INVALIDATION_TYPES.contains(invalidationType)) {
+            // products may have been added to the catalog
+            executor.execute(() -> refreshCategories(identifiers));
+        }
+    }
+
+    /**
+     * Queues a full sweep, unless one is queued already.
+     */
+    void scheduleRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    /**
+     * Replaces the index with the result of a full, paged sweep over the catalog.
+     */
+    void rebuild() {
+        Map<String, Suggestion> sweep = new LinkedHashMap<>();
+        int totalPages = 1;
+        for (int page = 1; page <= totalPages && page <= configuration.maxPages(); page++) {
+            Products products = fetchProducts(buildSweepQuery(configuration.pageSize(), page));
+            if (products == null) {
+                LOGGER.warn("Catalog sweep aborted at page {}, keeping the current suggestion index", page);
+                return;
+            }
+            addAll(sweep, products);
+            if (products.getPageInfo() != null && products.getPageInfo().getTotalPages() != null) {
+                totalPages = products.getPageInfo().getTotalPages();
+            }
+        }
+        synchronized (suggestionsBySku) {
+            suggestionsBySku.clear();
+            suggestionsBySku.putAll(sweep);
+            trie = SuggestionTrie.build(suggestionsBySku.values());
+        }
+        LOGGER.debug("Built search suggestion index with {} products", sweep.size());
+    }
+
+    /**
+     * Fetches the products of the given SKUs and updates the index. SKUs that are not returned anymore are removed.
+     */
+    void refresh(Collection<String> skus) {
+        if (skus.isEmpty()) {
+            return;
+        }
+        Map<String, Suggestion> refreshed = new LinkedHashMap<>();
+        List<String> skuList = new ArrayList<>(skus);
+        for (int start = 0; start < skuList.size(); start += configuration.pageSize()) {
+            List<String> chunk = skuList.subList(start, Math.min(skuList.size(), start + configuration.pageSize()));
+            Products products = fetchProducts(buildProductsQuery(chunk));
+            if (products == null) {
+                return;
+            }
+            addAll(refreshed, products);
+        }
+        update(skus, refreshed.values());
+    }
+
+    /**
+     * Fetches the products of the given categories and adds or replaces them in the index.
+     */
+    void refreshCategories(Collection<String> uids) {
+        if (uids.isEmpty()) {
+            return;
+        }
+        Map<String, Suggestion> refreshed = new LinkedHashMap<>();
+        List<String> uidList = new ArrayList<>(uids);
+        int totalPages = 1;
+        for (int page = 1; page <= totalPages && page <= configuration.maxPages(); page++) {
+            Products products = fetchProducts(buildCategoryQuery(uidList, configuration.pageSize(), page));
+            if (products == null) {
+                return;
+            }
+            addAll(refreshed, products);
+            if (products.getPageInfo() != null && products.getPageInfo().getTotalPages() != null) {
+                totalPages = products.getPageInfo().getTotalPages();
+            }
+        }
+        update(Collections.emptyList(), refreshed.values());
+    }
+
+    private void update(Collection<String> removedSkus, Collection<Suggestion> refreshed) {
+        synchronized (suggestionsBySku) {
+            List<Suggestion> removed = new ArrayList<>();
+            for (String sku : removedSkus) {
+                Suggestion previous = suggestionsBySku.remove(sku);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+            }
+            for (Suggestion suggestion : refreshed) {
+                Suggestion previous = suggestionsBySku.put(suggestion.getSku(), suggestion);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+            }
+            trie = trie.update(removed, refreshed);
+        }
+    }
+
+    /**
+     * Builds the GraphQL query for one page of the catalog sweep, a search for the empty term matches all products.
+     */
+    static String buildSweepQuery(int pageSize, int currentPage) {
+        return Operations.query(query -> query
+                .products(args -> args.search("").pageSize(pageSize).currentPage(currentPage), products -> products
+                        .pageInfo(info -> info.currentPage().totalPages())
+                        .items(SUGGESTION_FIELDS))).toString();
+    }
+
+    /**
+     * Builds the GraphQL query for the products of the given SKUs.
+     */
+    static String buildProductsQuery(List<String> skus) {
+        ProductAttributeFilterInput filter = new ProductAttributeFilterInput().setSku(new FilterEqualTypeInput().setIn(skus));
+        return Operations.query(query -> query
+                .products(args -> args.filter(filter).pageSize(skus.size()), products -> products
+                        .items(SUGGESTION_FIELDS))).toString();
+    }
+
+    /**
+     * Builds the GraphQL query for one page of the products of the given categories.
+     */
+    static String buildCategoryQuery(List<String> uids, int pageSize, int currentPage) {
+        ProductAttributeFilterInput filter = new ProductAttributeFilterInput().setCategoryUid(new FilterEqualTypeInput().setIn(uids));
+        return Operations.query(query -> query
+                .products(args -> args.filter(filter).pageSize(pageSize).currentPage(currentPage), products -> products
+                        .pageInfo(info -> info.currentPage().totalPages())
+                        .items(SUGGESTION_FIELDS))).toString();
+    }
+
+    RequestOptions createRequestOptions() {
+        return new RequestOptions()
+                .withGson(QueryDeserializer.getGson())
+                .withHeaders(Collections.singletonList(new BasicHeader("Store", configuration.storeView())));
+    }
+
+    private Products fetchProducts(String query) {
+        try {
+            GraphqlRequest request = new GraphqlRequest(query);
+            GraphqlResponse<Query, Error> response = graphqlClient.execute(request, Query.class, Error.class,
+                    createRequestOptions());
+            if (response == null || (response.getErrors() != null && !response.getErrors().isEmpty()) || response.getData() == null) {
+                LOGGER.warn("Failed to fetch products for the search suggestion index");
+                return null;
+            }
+            return response.getData().getProducts();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to fetch products for the search suggestion index: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void addAll(Map<String, Suggestion> target, Products products) {
+        if (products.getItems() == null) {
+            return;
+        }
+        for (ProductInterface item : products.getItems()) {
+            if (item.getSku() != null) {
+                target.put(item.getSku(), new Suggestion(item.getSku(), item.getName(), item.getUrlKey()));
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.services.suggestions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * An immutable prefix trie over the product names, the single words of the product names and the SKUs of a set of
+ * {@link Suggestion}s.
+ *
+ * <p>Lookups first collect exact prefix matches. If these are not enough, the trie is walked again with a Levenshtein row per
+ * node, which finds prefixes within one edit of the query (a typo, a missing or an additional character).</p>
+ *
+ * <p>{@link #update(Collection, Collection)} returns a new trie that shares all nodes with this trie except the ones on the paths
+ * of the changed terms, so that single products can be replaced without building the trie again.</p>
+ */
+public final class SuggestionTrie {
+
+    static final SuggestionTrie EMPTY = build(Collections.emptyList());
+
+    private static final int MIN_FUZZY_QUERY_LENGTH = 3;
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private final Node root;
+    private final int size;
+
+    private SuggestionTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static SuggestionTrie build(Collection<Suggestion> suggestions) {
+        Node root = new Node();
+        for (Suggestion suggestion : suggestions) {
+            for (String term : getTerms(suggestion)) {
+                root.insert(term, suggestion);
+            }
+        }
+        return new SuggestionTrie(root, suggestions.size());
+    }
+
+    /**
+     * Returns a trie without the removed and with the added suggestions. The removed suggestions must be the instances this trie
+     * was built or updated with.
+     */
+    public SuggestionTrie update(Collection<Suggestion> removed, Collection<Suggestion> added) {
+        Node updated = root;
+        for (Suggestion suggestion : removed) {
+            for (String term : getTerms(suggestion)) {
+                updated = updated.with(term, 0, suggestion, false);
+            }
+        }
+        for (Suggestion suggestion : added) {
+            for (String term : getTerms(suggestion)) {
+                updated = updated.with(term, 0, suggestion, true);
+            }
+        }
+        return new SuggestionTrie(updated, size - removed.size() + added.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions for the given query. Exact prefix matches come first, followed by matches within
+     * one edit of the query if the query has at least three characters.
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        if (query == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Suggestion> matches = new LinkedHashSet<>();
+        Node node = root.find(normalized);
+        if (node != null) {
+            node.collect(matches, limit);
+        }
+        if (matches.size() < limit && normalized.length() >= MIN_FUZZY_QUERY_LENGTH) {
+            int[] row = new int[normalized.length() + 1];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = i;
+            }
+            root.collectFuzzy(normalized, row, matches, limit);
+        }
+        return new ArrayList<>(matches);
+    }
+
+    static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> getTerms(Suggestion suggestion) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (suggestion.getName() != null) {
+            String name = normalize(suggestion.getName());
+            terms.add(name);
+            for (String word : name.split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() >= MIN_WORD_LENGTH) {
+                    terms.add(word);
+                }
+            }
+        }
+        if (suggestion.getSku() != null) {
+            terms.add(normalize(suggestion.getSku()));
+        }
+        return terms;
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Suggestion[] NO_VALUES = new Suggestion[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] values = NO_VALUES;
+
+        void insert(String term, Suggestion value) {
+            Node node = this;
+            for (int i = 0; i < term.length(); i++) {
+                node = node.getOrCreateChild(term.charAt(i));
+            }
+            node.values = withValue(node.values, value);
+        }
+
+        /**
+         * Returns a copy of this node with the value added to or removed from the node of the term, copying only the nodes on
+         * the path of the term. Nodes left without values and children are dropped.
+         */
+        Node with(String term, int depth, Suggestion value, boolean add) {
+            Node copy = new Node();
+            copy.keys = keys;
+            copy.children = children;
+            copy.values = values;
+            if (depth == term.length()) {
+                copy.values = add ? withValue(values, value) : withoutValue(values, value);
+                return copy;
+            }
+            int index = Arrays.binarySearch(keys, term.charAt(depth));
+            if (index < 0) {
+                if (!add) {
+                    return this;
+                }
+                copy.getOrCreateChild(term.charAt(depth)).insert(term.substring(depth + 1), value);
+                return copy;
+            }
+            Node child = children[index].with(term, depth + 1, value, add);
+            if (child.keys.length == 0 && child.values.length == 0) {
+                copy.keys = new char[keys.length - 1];
+                copy.children = new Node[children.length - 1];
+                System.arraycopy(keys, 0, copy.keys, 0, index);
+                System.arraycopy(children, 0, copy.children, 0, index);
+                System.arraycopy(keys, index + 1, copy.keys, index, keys.length - index - 1);
+                System.arraycopy(children, index + 1, copy.children, index, children.length - index - 1);
+            } else {
+                copy.children = children.clone();
+                copy.children[index] = child;
+            }
+            return copy;
+        }
+
+        Node find(String term) {
+            Node node = this;
+            for (int i = 0; i < term.length() && node != null; i++) {
+                int index = Arrays.binarySearch(node.keys, term.charAt(i));
+                node = index >= 0 ? node.children[index] : null;
+            }
+            return node;
+        }
+
+        void collect(Set<Suggestion> matches, int limit) {
+            for (Suggestion value : values) {
+                if (matches.size() >= limit) {
+                    return;
+                }
+                matches.add(value);
+            }
+            for (Node child : children) {
+                if (matches.size() >= limit) {
+                    return;
+                }
+                child.collect(matches, limit);
+            }
+        }
+
+        void collectFuzzy(String query, int[] previousRow, Set<Suggestion> matches, int limit) {
+            for (int c = 0; c < keys.length && matches.size() < limit; c++) {
+                char key = keys[c];
+                int[] row = new int[previousRow.length];
+                row[0] = previousRow[0] + 1;
+                int min = row[0];
+                for (int i = 1; i < row.length; i++) {
+                    int substitution = previousRow[i - 1] + (query.charAt(i - 1) == key ? 0 : 1);
+                    row[i] = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), substitution);
+                    min = Math.min(min, row[i]);
+                }
+                if (row[row.length - 1] <= 1) {
+                    // the whole query is within one edit of the path to this node, all terms below are prefix matches
+                    children[c].collect(matches, limit);
+                } else if (min <= 1) {
+                    children[c].collectFuzzy(query, row, matches, limit);
+                }
+            }
+        }
+
+        private Node getOrCreateChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private static Suggestion[] withValue(Suggestion[] values, Suggestion value) {
+            for (Suggestion existing : values) {
+                if (existing == value) {
+                    return values;
+                }
+            }
+            Suggestion[] newValues = Arrays.copyOf(values, values.length + 1);
+            newValues[values.length] = value;
+            return newValues;
+        }
+
+        private static Suggestion[] withoutValue(Suggestion[] values, Suggestion value) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == value) {
+                    Suggestion[] newValues = new Suggestion[values.length - 1];
+                    System.arraycopy(values, 0, newValues, 0, i);
+                    System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+                    return newValues;
+                }
+            }
+            return values;
+        }
+    }
+}
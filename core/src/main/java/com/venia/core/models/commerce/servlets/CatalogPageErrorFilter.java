@@ -1,14 +1,17 @@
 package com.venia.core.models.commerce.servlets;
 
+import com.adobe.cq.commerce.core.components.models.common.ProductListItem;
 import com.adobe.cq.commerce.core.components.models.common.SiteStructure;
 import com.adobe.cq.commerce.core.components.models.product.Product;
 import com.adobe.cq.commerce.core.components.models.productlist.ProductList;
 import com.adobe.cq.commerce.core.components.models.retriever.AbstractCategoryRetriever;
 import com.adobe.cq.commerce.core.components.models.retriever.AbstractProductRetriever;
+import com.adobe.cq.commerce.magento.graphql.CategoryInterface;
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.PageManager;
 import com.day.cq.wcm.api.PageManagerFactory;
 import com.venia.core.models.commerce.services.CommerceComponentModelFinder;
+import com.venia.core.models.commerce.services.cacheinvalidation.RenderDependencies;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.Resource;
@@ -24,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 
 @Component(
         service = {Filter.class},
@@ -81,6 +85,9 @@ public class CatalogPageErrorFilter implements Filter {
                             slingResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Commerce application not reachable");
                             return;
                         }
+                        if (product.getFound()) {
+                            RenderDependencies.recordSku(slingRequest, product.getSku());
+                        }
                     }
                 } else if (siteStructure.isCategoryPage(currentPage)) {
                     // add the SlingScriptHelper to the bindings if it is not there yet
@@ -97,6 +104,7 @@ public class CatalogPageErrorFilter implements Filter {
                             slingResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Commerce application not reachable");
                             return;
                         }
+                        recordDependencies(slingRequest, categoryRetriever, productList);
                     }
                 }
                 if (removeSlingScriptHelperFromBindings) {
@@ -114,6 +122,23 @@ public class CatalogPageErrorFilter implements Filter {
     public void destroy() {
     }
 
+    /**
+     * Records the category and the listed products of a category page as render dependencies of the page.
+     */
+    private static void recordDependencies(SlingHttpServletRequest slingRequest, AbstractCategoryRetriever categoryRetriever,
+                                           ProductList productList) {
+        CategoryInterface category = categoryRetriever != null ? categoryRetriever.fetchCategory() : null;
+        if (category != null && category.getUid() != null) {
+            RenderDependencies.recordCategory(slingRequest, category.getUid().toString());
+        }
+        List<ProductListItem> items = productList.getSearchResultsSet().getProductListItems();
+        if (items != null) {
+            for (ProductListItem item : items) {
+                RenderDependencies.recordSku(slingRequest, item.getSKU());
+            }
+        }
+    }
+
     /**
      * The {@link com.venia.core.models.commerce.services.CommerceComponentModelFinder} uses
      * {@link org.apache.sling.models.factory.ModelFactory#getModelFromWrappedRequest(SlingHttpServletRequest, Resource, Class)}
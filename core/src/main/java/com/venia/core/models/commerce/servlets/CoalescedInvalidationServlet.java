@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationJobConsumer;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingAllMethodsServlet;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Accepts cache invalidation requests with the same JSON body as the CIF cache invalidation servlet, for example
+ * {@code {"storePath": "/content/venia/us/en", "productSkus": ["VA01", "VA02"]}}. The request is queued as a Sling job and
+ * answered with {@code 202 Accepted} and the job id right away, the {@link InvalidationJobConsumer} writes its invalidation
+ * command with the {@link com.venia.core.models.commerce.services.cacheinvalidation.InvalidationCoalescer}, which replicates it to the
+ * publish instances.
+ *
+ * <p>The state of a queued request can be requested with {@code GET /bin/venia/cacheinvalidation?jobId=<id>}.</p>
+ *
+ * <p>Requests and job states are only served to callers that may write the cache invalidation commands themselves, see
+ * {@link InvalidationPermissions}. The servlet requires a configuration, which is only provided on author.</p>
+ */
+@Component(
+        service = Servlet.class,
+        configurationPolicy = ConfigurationPolicy.REQUIRE,
+        property = {
+                "sling.servlet.paths=" + CoalescedInvalidationServlet.PATH,
+                "sling.servlet.methods=GET",
+                "sling.servlet.methods=POST"
+        })
+public class CoalescedInvalidationServlet extends SlingAllMethodsServlet {
+
+    static final String PATH = "/bin/venia/cacheinvalidation";
+    static final String JOB_ID = "jobId";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Reference
+    private transient JobManager jobManager;
+
+    @Override
+    protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+        if (!InvalidationPermissions.canInvalidate(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        String jobId = request.getParameter(JOB_ID);
+        Job job = StringUtils.isNotBlank(jobId) ? jobManager.getJobById(jobId) : null;
+        if (job == null) {
+            // finished jobs are removed from the queue
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        writeJob(response, job.getId(), job.getJobState().name(), job.getRetryCount());
+    }
+
+    @Override
+    protected void doPost(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+        if (!InvalidationPermissions.canInvalidate(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        InvalidationRequest invalidation;
+        try {
+            invalidation = InvalidationRequest.parse(request.getReader());
+        } catch (JsonProcessingException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON body");
+            return;
+        }
+        if (StringUtils.isBlank(invalidation.getStorePath())) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing " + InvalidationRequest.STORE_PATH);
+            return;
+        }
+
+        Job job = jobManager.addJob(InvalidationJobConsumer.getTopic(invalidation.getStorePath()),
+                InvalidationJobConsumer.toJobProperties(invalidation.getStorePath(), invalidation.getParameters(),
+                        invalidation.isInvalidateAll()));
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Failed to queue the invalidation request");
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        writeJob(response, job.getId(), "accepted", 0);
+    }
+
+    private static void writeJob(SlingHttpServletResponse response, String jobId, String status, int retries) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(response.getWriter())) {
+            generator.writeStartObject();
+            generator.writeStringField(JOB_ID, jobId);
+            generator.writeStringField("status", status);
+            generator.writeNumberField("retries", retries);
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationAuditLog;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serves the records of the {@link InvalidationAuditLog} as JSON, the most recent first, for example
+ * {@code /bin/venia/cacheinvalidation/audit?limit=20}. The records are only served to callers that may invalidate the cache,
+ * see {@link InvalidationPermissions}.
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "sling.servlet.paths=" + InvalidationAuditServlet.PATH,
+                "sling.servlet.methods=GET"
+        })
+public class InvalidationAuditServlet extends SlingSafeMethodsServlet {
+
+    static final String PATH = "/bin/venia/cacheinvalidation/audit";
+    static final String LIMIT_PARAMETER = "limit";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Reference
+    private transient InvalidationAuditLog auditLog;
+
+    @Override
+    protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+        if (!InvalidationPermissions.canInvalidate(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        List<InvalidationAuditLog.Record> records = auditLog.getRecords();
+        int limit = Math.min(records.size(), Math.max(0, NumberUtils.toInt(request.getParameter(LIMIT_PARAMETER), records.size())));
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(response.getWriter())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("records");
+            for (InvalidationAuditLog.Record record : records.subList(0, limit)) {
+                generator.writeStartObject();
+                generator.writeNumberField("timestamp", record.getTimestamp());
+                generator.writeStringField("invalidationType", record.getInvalidationType());
+                generator.writeStringField("operation", record.getOperation());
+                if (record.getStorePath() != null) {
+                    generator.writeStringField("storePath", record.getStorePath());
+                }
+                generator.writeNumberField("parameters", record.getParameters());
+                generator.writeNumberField("patterns", record.getPatterns());
+                generator.writeNumberField("patternBuildMicros", record.getPatternBuildMicros());
+                generator.writeNumberField("graphqlRequests", record.getGraphqlRequests());
+                generator.writeNumberField("graphqlErrors", record.getGraphqlErrors());
+                generator.writeNumberField("paths", record.getPaths());
+                generator.writeNumberField("wallTimeMillis", record.getWallTimeMillis());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationImpactEstimator;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingAllMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Evaluates a cache invalidation request without performing it. The body is the same as for
+ * {@code /bin/venia/cacheinvalidation}, the response lists per invalidation type the number of GraphQL cache patterns
+ * and dispatcher paths that would be invalidated, with up to {@code sample} (default 10) of the
+ * patterns and paths.
+ *
+ * <pre>
+ * POST /bin/venia/cacheinvalidation/dryrun?sample=5
+ * {"storePath": "/content/venia/us/en", "productSkus": ["VA01", "VA02"]}
+ * </pre>
+ *
+ * <p>Dry runs are only served to callers that may write the cache invalidation commands, see {@link InvalidationPermissions}.
+ * The servlet requires a configuration, which is only provided on author.</p>
+ */
+@Component(
+        service = Servlet.class,
+        configurationPolicy = ConfigurationPolicy.REQUIRE,
+        property = {
+                "sling.servlet.paths=" + InvalidationDryRunServlet.PATH,
+                "sling.servlet.methods=POST"
+        })
+public class InvalidationDryRunServlet extends SlingAllMethodsServlet {
+
+    static final String PATH = "/bin/venia/cacheinvalidation/dryrun";
+    static final String SAMPLE = "sample";
+    static final int DEFAULT_SAMPLE = 10;
+    static final int MAX_SAMPLE = 1000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Reference
+    private transient InvalidationImpactEstimator estimator;
+
+    @Override
+    protected void doPost(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+        if (!InvalidationPermissions.canInvalidate(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        InvalidationRequest invalidation;
+        try {
+            invalidation = InvalidationRequest.parse(request.getReader());
+        } catch (JsonProcessingException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON body");
+            return;
+        }
+        if (StringUtils.isBlank(invalidation.getStorePath())) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing " + InvalidationRequest.STORE_PATH);
+            return;
+        }
+        int sample = Math.min(MAX_SAMPLE, Math.max(0, NumberUtils.toInt(request.getParameter(SAMPLE), DEFAULT_SAMPLE)));
+        List<InvalidationImpactEstimator.Impact> impacts = estimator.estimate(request.getResourceResolver(),
+                invalidation.getStorePath(), invalidation.getParameters(), sample);
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(response.getWriter())) {
+            json.writeStartObject();
+            json.writeStringField(InvalidationRequest.STORE_PATH, invalidation.getStorePath());
+            // invalidateAll clears all GraphQL caches of the store, the dispatcher paths are still resolved per type
+            json.writeBooleanField(InvalidationRequest.INVALIDATE_ALL, invalidation.isInvalidateAll());
+            json.writeArrayFieldStart("invalidations");
+            for (InvalidationImpactEstimator.Impact impact : impacts) {
+                json.writeStartObject();
+                json.writeStringField("invalidationType", impact.getInvalidationType());
+                json.writeNumberField("identifiers", impact.getIdentifiers());
+                json.writeNumberField("strategies", impact.getStrategies());
+                json.writeNumberField("patterns", impact.getPatterns());
+                writeStrings(json, "patternSample", impact.getPatternSample());
+                json.writeNumberField("paths", impact.getPaths());
+                writeStrings(json, "pathSample", impact.getPathSample());
+                writeStrings(json, "errors", impact.getErrors());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeStrings(JsonGenerator json, String field, List<String> values) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (String value : values) {
+            json.writeString(value);
+        }
+        json.writeEndArray();
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.venia.core.models.commerce.services.cacheinvalidation.HttpInvalidationTransport;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationDistributor;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationMessage;
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingAllMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Receives the invalidations broadcast by the {@link HttpInvalidationTransport} of the other instances and hands them to the
+ * {@link InvalidationDistributor}. Requests without the shared secret are rejected with {@code 403}. Applied invalidations are
+ * answered with {@code 202 Accepted}, duplicate and stale ones with {@code 200 OK}, so that the sender does not retry them.
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "sling.servlet.paths=" + InvalidationFanoutServlet.PATH,
+                "sling.servlet.methods=POST"
+        })
+public class InvalidationFanoutServlet extends SlingAllMethodsServlet {
+
+    static final String PATH = "/bin/venia/cacheinvalidation/fanout";
+
+    @Reference
+    private transient HttpInvalidationTransport transport;
+
+    @Reference
+    private transient InvalidationDistributor distributor;
+
+    @Override
+    protected void doPost(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+        if (!transport.isAuthorized(request.getHeader(HttpInvalidationTransport.TOKEN_HEADER))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        InvalidationMessage message;
+        try {
+            message = InvalidationMessage.fromJson(IOUtils.toString(request.getReader()));
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setStatus(distributor.receive(message) ? HttpServletResponse.SC_ACCEPTED : HttpServletResponse.SC_OK);
+    }
+}
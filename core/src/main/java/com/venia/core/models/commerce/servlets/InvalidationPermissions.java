@@ -0,0 +1,43 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationCoalescer;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Access check of the Venia cache invalidation servlets. The invalidation commands are written by a service user, so a caller
+ * must be allowed to write them itself: like for the CIF cache invalidation servlet, this requires the permission to add nodes
+ * to the cache invalidation working area.
+ */
+final class InvalidationPermissions {
+
+    private InvalidationPermissions() {
+    }
+
+    static boolean canInvalidate(SlingHttpServletRequest request) {
+        Session session = request.getResourceResolver().adaptTo(Session.class);
+        if (session == null) {
+            return false;
+        }
+        try {
+            return session.hasPermission(InvalidationCoalescer.WORKING_AREA, Session.ACTION_ADD_NODE);
+        } catch (RepositoryException e) {
+            return false;
+        }
+    }
+}
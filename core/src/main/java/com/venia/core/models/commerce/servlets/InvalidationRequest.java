@@ -0,0 +1,94 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache invalidation request with the JSON body of the CIF cache invalidation servlet, for example
+ * {@code {"storePath": "/content/venia/us/en", "productSkus": ["VA01", "VA02"]}}.
+ */
+final class InvalidationRequest {
+
+    static final String STORE_PATH = "storePath";
+    static final String INVALIDATE_ALL = "invalidateAll";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String storePath;
+    private boolean invalidateAll;
+    private final Map<String, List<String>> parameters = new LinkedHashMap<>();
+
+    private InvalidationRequest() {
+    }
+
+    /**
+     * Parses the body with the streaming parser, it only consists of a store path, a flag and arrays of identifiers.
+     *
+     * @throws JsonProcessingException if the body is not a JSON object
+     */
+    static InvalidationRequest parse(Reader body) throws IOException {
+        InvalidationRequest request = new InvalidationRequest();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (STORE_PATH.equals(field) && value == JsonToken.VALUE_STRING) {
+                    request.storePath = parser.getText();
+                } else if (INVALIDATE_ALL.equals(field) && value.isBoolean()) {
+                    request.invalidateAll = parser.getBooleanValue();
+                } else if (value == JsonToken.START_ARRAY) {
+                    List<String> identifiers = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (parser.currentToken().isScalarValue()) {
+                            identifiers.add(parser.getText());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    request.parameters.put(field, identifiers);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return request;
+    }
+
+    String getStorePath() {
+        return storePath;
+    }
+
+    boolean isInvalidateAll() {
+        return invalidateAll;
+    }
+
+    Map<String, List<String>> getParameters() {
+        return parameters;
+    }
+}
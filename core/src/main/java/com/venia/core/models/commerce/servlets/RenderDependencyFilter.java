@@ -0,0 +1,143 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.day.cq.commons.LanguageUtil;
+import com.venia.core.models.commerce.services.cacheinvalidation.CommerceReferenceIndex;
+import com.venia.core.models.commerce.services.cacheinvalidation.RenderDependencies;
+import com.venia.core.models.commerce.services.cacheinvalidation.SoftTtlRefresher;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records the SKUs and category UIDs fetched while a page is rendered and stores them as the render dependencies of the
+ * request path in the {@link CommerceReferenceIndex}. The filter runs before the {@link CatalogPageErrorFilter}, so the
+ * product and category fetched for catalog pages are recorded as well. Only successful {@code GET} requests without a query
+ * string are recorded, as the dispatcher does not cache others. Recording is disabled by default, as it adds work to every page
+ * render.
+ */
+@Component(
+        service = Filter.class,
+        property = {
+                "sling.filter.scope=REQUEST",
+                "sling.filter.resourceTypes=cq:Page",
+                "sling.filter.resourceTypes=core/cif/components/structure/page/v1/page",
+                "sling.filter.resourceTypes=core/cif/components/structure/page/v2/page",
+                "sling.filter.resourceTypes=core/cif/components/structure/page/v3/page",
+                "sling.filter.extensions=html",
+                "sling.filter.methods=GET",
+                "sling.filter.resource.pattern=/content(/.+)?",
+                "service.ranking:Integer=-3000"
+        })
+@Designate(ocd = RenderDependencyFilter.Configuration.class)
+public class RenderDependencyFilter implements Filter {
+
+    @ObjectClassDefinition(name = "Venia Render Dependency Filter")
+    public @interface Configuration {
+
+        @AttributeDefinition(name = "Enabled", description = "Record the SKUs and category UIDs fetched by page renders")
+        boolean enabled() default false;
+    }
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile CommerceReferenceIndex referenceIndex;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+    private volatile SoftTtlRefresher refresher;
+
+    private boolean enabled;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        this.enabled = configuration.enabled();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        CommerceReferenceIndex index = referenceIndex;
+        SoftTtlRefresher softTtlRefresher = refresher != null && refresher.isEnabled() ? refresher : null;
+        if (!enabled || (index == null && softTtlRefresher == null) || !(servletRequest instanceof SlingHttpServletRequest)
+                || !(servletResponse instanceof SlingHttpServletResponse)
+                || ((SlingHttpServletRequest) servletRequest).getQueryString() != null) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        SlingHttpServletRequest slingRequest = (SlingHttpServletRequest) servletRequest;
+        SlingHttpServletResponse slingResponse = (SlingHttpServletResponse) servletResponse;
+        RenderDependencies dependencies = RenderDependencies.start(slingRequest);
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            RenderDependencies.stop(slingRequest);
+        }
+        if (slingResponse.getStatus() >= HttpServletResponse.SC_BAD_REQUEST) {
+            return;
+        }
+        RequestPathInfo pathInfo = slingRequest.getRequestPathInfo();
+        String requestPath = getRequestPath(pathInfo);
+        if (index != null) {
+            index.recordRendered(requestPath, dependencies.getSkus(), dependencies.getCategories());
+        }
+        if (softTtlRefresher != null) {
+            softTtlRefresher.recordRendered(LanguageUtil.getLanguageRoot(pathInfo.getResourcePath()), requestPath,
+                    dependencies.getSkus(), dependencies.getCategories());
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Returns the request path including selectors, extension and suffix, as cached by the dispatcher.
+     */
+    static String getRequestPath(RequestPathInfo pathInfo) {
+        StringBuilder path = new StringBuilder(pathInfo.getResourcePath());
+        if (pathInfo.getSelectorString() != null) {
+            path.append('.').append(pathInfo.getSelectorString());
+        }
+        if (pathInfo.getExtension() != null) {
+            path.append('.').append(pathInfo.getExtension());
+        }
+        if (pathInfo.getSuffix() != null) {
+            path.append(pathInfo.getSuffix());
+        }
+        return path.toString();
+    }
+}
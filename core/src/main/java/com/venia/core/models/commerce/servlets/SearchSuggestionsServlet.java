@@ -0,0 +1,86 @@
+/*******************************************************************************
+ *
+ *    Copyright 2026 Adobe. All rights reserved.
+ *    This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License. You may obtain a copy
+ *    of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software distributed under
+ *    the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ *    OF ANY KIND, either express or implied. See the License for the specific language
+ *    governing permissions and limitations under the License.
+ *
+ ******************************************************************************/
+package com.venia.core.models.commerce.servlets;
+
+import com.adobe.cq.commerce.core.components.services.ComponentsConfiguration;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.venia.core.models.commerce.services.suggestions.SearchSuggestionIndex;
+import com.venia.core.models.commerce.services.suggestions.Suggestion;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serves search suggestions from the {@link SearchSuggestionIndex} next to the search results component, for example
+ * {@code /content/venia/us/en/search/jcr:content/root/searchresults.suggestions.json?q=shirt}. Requests of stores whose store
+ * view is not indexed are answered with 404, so that no store gets the suggestions of another catalog.
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "sling.servlet.resourceTypes=venia/components/commerce/searchresults",
+                "sling.servlet.selectors=suggestions",
+                "sling.servlet.extensions=json",
+                "sling.servlet.methods=GET"
+        })
+public class SearchSuggestionsServlet extends SlingSafeMethodsServlet {
+
+    static final String QUERY_PARAMETER = "q";
+    static final String LIMIT_PARAMETER = "limit";
+    static final int DEFAULT_LIMIT = 8;
+    static final int MAX_LIMIT = 50;
+    static final String STORE_VIEW_PROPERTY = "magentoStore";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Reference
+    private transient SearchSuggestionIndex suggestionIndex;
+
+    @Override
+    protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+        ComponentsConfiguration configuration = request.getResource().adaptTo(ComponentsConfiguration.class);
+        String storeView = configuration != null ? configuration.get(STORE_VIEW_PROPERTY, String.class) : null;
+        if (!suggestionIndex.isIndexed(storeView)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        int limit = Math.min(MAX_LIMIT, Math.max(1, NumberUtils.toInt(request.getParameter(LIMIT_PARAMETER), DEFAULT_LIMIT)));
+        List<Suggestion> suggestions = suggestionIndex.suggest(request.getParameter(QUERY_PARAMETER), limit);
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(response.getWriter())) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("suggestions");
+            for (Suggestion suggestion : suggestions) {
+                json.writeStartObject();
+                json.writeStringField("sku", suggestion.getSku());
+                json.writeStringField("name", suggestion.getName());
+                json.writeStringField("urlKey", suggestion.getUrlKey());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+}
@@ -27,6 +27,8 @@ import io.wcm.testing.mock.aem.junit5.AemContextExtension;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.apache.sling.caconfig.ConfigurationBuilder;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
 import org.junit.jupiter.api.Assertions;
@@ -40,11 +42,16 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(AemContextExtension.class)
@@ -54,6 +61,8 @@ public class MySearchResultsImplTest {
 
     private MySearchResultsImpl underTest;
     private HashMap<String, Object> dataLayerConfigMap;
+    private SearchResultsSet searchResultsSet;
+    private MetricsService metricsService;
 
     @BeforeEach
     void beforeEach() {
@@ -66,7 +75,7 @@ public class MySearchResultsImplTest {
         context.currentResource(PAGE + "/jcr:content/test");
 
         SearchResultsService searchResultsService = mock(SearchResultsService.class);
-        SearchResultsSet searchResultsSet = mock(SearchResultsSet.class);
+        searchResultsSet = mock(SearchResultsSet.class);
         Function<ProductAttributeFilterInput, ProductAttributeFilterInput> a = any();
         when(searchResultsService.performSearch(any(), any(), any(), any(), any(), a)).thenReturn(searchResultsSet);
         Sorter sorter = mock(Sorter.class);
@@ -81,6 +90,8 @@ public class MySearchResultsImplTest {
 
         context.registerService(SearchResultsService.class, searchResultsService);
         context.registerService(UrlProvider.class, mock(UrlProvider.class));
+        metricsService = mock(MetricsService.class, RETURNS_DEEP_STUBS);
+        context.registerService(MetricsService.class, metricsService);
         context.addModelsForClasses(MySearchResultsImpl.class);
 
         ConfigurationBuilder configurationBuilder = mock(ConfigurationBuilder.class);
@@ -132,4 +143,12 @@ public class MySearchResultsImplTest {
         assertFalse(keys.stream().anyMatch(sorterKey -> sorterKey.getName().equals("position")));
         assertEquals(2, keys.size());
     }
+
+    @Test
+    void testMetrics() {
+        Timer initTimer = metricsService.timer(MySearchResultsImpl.METRIC_INIT);
+        verify(initTimer).update(anyLong(), eq(TimeUnit.NANOSECONDS));
+        Timer searchTimer = metricsService.timer(MySearchResultsImpl.METRIC_SEARCH);
+        verify(searchTimer).update(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
 }
@@ -0,0 +1,199 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
+import com.adobe.cq.commerce.core.components.client.MagentoGraphqlClient;
+import com.adobe.cq.commerce.core.components.services.urls.CategoryUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.ProductUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
+import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
+import com.adobe.cq.commerce.magento.graphql.CategoryTree;
+import com.adobe.cq.commerce.magento.graphql.ProductInterface;
+import com.adobe.cq.commerce.magento.graphql.Products;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.SimpleProduct;
+import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import com.shopify.graphql.support.ID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AttributeInvalidationTest {
+
+    private static final String STORE_PATH = "/content/venia/us/en";
+
+    @InjectMocks
+    private AttributeInvalidation strategy;
+
+    @Mock
+    private CacheInvalidationContext context;
+
+    @Mock
+    private UrlProvider urlProvider;
+
+    @Mock
+    private MagentoGraphqlClient graphqlClient;
+
+    @Mock
+    private GraphqlResponse<Query, Error> graphqlResponse;
+
+    @AfterEach
+    void tearDown() {
+        strategy.deactivate();
+    }
+
+    private void activate(String fieldPath, AttributeInvalidation.PathResolution pathResolution, int maxProducts) {
+        AttributeInvalidation.Configuration configuration = mock(AttributeInvalidation.Configuration.class);
+        lenient().when(configuration.invalidationType()).thenReturn("brands");
+        lenient().when(configuration.fieldPath()).thenReturn(fieldPath);
+        lenient().when(configuration.pathResolution()).thenReturn(pathResolution);
+        lenient().when(configuration.filterAttribute()).thenReturn("");
+        lenient().when(configuration.maxProducts()).thenReturn(maxProducts);
+        lenient().when(configuration.chunkSize()).thenReturn(InvalidationBatches.DEFAULT_CHUNK_SIZE);
+        lenient().when(configuration.parallelism()).thenReturn(1);
+        strategy.activate(configuration);
+    }
+
+    @Test
+    void testGetPatterns() {
+        activate("product_brand.code", AttributeInvalidation.PathResolution.NONE, 10);
+
+        assertEquals("brands", strategy.getInvalidationType());
+        assertEquals(Collections.singletonList(IdentifierPattern.of(IdentifierPattern.fieldRegex("product_brand.code"), "acme", "zeta")
+                .toRegex()), strategy.getPatterns(new String[] { "zeta", "acme" }));
+        assertTrue(strategy.getPatterns(new String[] { "", null }).isEmpty());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> activate("brand|.*", AttributeInvalidation.PathResolution.NONE, 10));
+        AttributeInvalidation.Configuration configuration = mock(AttributeInvalidation.Configuration.class);
+        when(configuration.invalidationType()).thenReturn(" ");
+        assertThrows(IllegalArgumentException.class, () -> strategy.activate(configuration));
+        activate("brand", AttributeInvalidation.PathResolution.NONE, 10);
+    }
+
+    @Test
+    void testNoPathResolution() {
+        activate("brand", AttributeInvalidation.PathResolution.NONE, 10);
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("acme"));
+
+        assertTrue(strategy.getPathsToInvalidate(context).isEmpty());
+        verifyNoInteractions(graphqlClient);
+    }
+
+    @Test
+    void testStorePathResolution() {
+        activate("brand", AttributeInvalidation.PathResolution.STORE, 10);
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("acme"));
+        when(context.getStorePath()).thenReturn(STORE_PATH);
+
+        assertEquals(Collections.singletonList(STORE_PATH), strategy.getPathsToInvalidate(context));
+    }
+
+    @Test
+    void testProductPathResolution() {
+        activate("brand", AttributeInvalidation.PathResolution.PRODUCTS, 10);
+        SimpleProduct product = new SimpleProduct()
+                .setSku("sku1")
+                .setUrlKey("product-1")
+                .setCategories(Collections.singletonList(new CategoryTree().setUid(new ID("MTI=")).setUrlKey("men").setUrlPath("men")));
+        mockProducts(Collections.singletonList(product));
+        when(urlProvider.toProductUrl(isNull(), isNull(), any(ProductUrlFormat.Params.class)))
+                .thenAnswer(invocation -> "/products/product-page.html/" + ((ProductUrlFormat.Params) invocation.getArgument(2)).getUrlKey() + ".html");
+        when(urlProvider.formatCategoryUrl(isNull(), isNull(), any(CategoryUrlFormat.Params.class)))
+                .thenReturn("/products/category-page.html/men.html");
+
+        assertEquals(Arrays.asList("/products/product-page.html/product-1.html", "/products/category-page.html/men.html"),
+                strategy.getPathsToInvalidate(context));
+
+        ArgumentCaptor<String> query = ArgumentCaptor.forClass(String.class);
+        verify(graphqlClient).execute(query.capture());
+        assertTrue(query.getValue().contains("brand:{in:[\"acme\"]}"), query.getValue());
+        assertTrue(query.getValue().contains("pageSize:10,currentPage:1"), query.getValue());
+        assertTrue(query.getValue().contains("total_count"), query.getValue());
+    }
+
+    @Test
+    void testProductPathResolutionInPages() {
+        activate("brand", AttributeInvalidation.PathResolution.PRODUCTS, 500);
+        List<ProductInterface> firstPage = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            firstPage.add(new SimpleProduct().setSku("sku" + i).setUrlKey("product-" + i));
+        }
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("acme"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(graphqlClient.execute(anyString())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(
+                new Query().setProducts(new Products().setTotalCount(301).setItems(firstPage)),
+                new Query().setProducts(new Products().setTotalCount(301).setItems(Collections.singletonList(
+                        new SimpleProduct().setSku("sku300").setUrlKey("product-300")))));
+        when(urlProvider.toProductUrl(isNull(), isNull(), any(ProductUrlFormat.Params.class)))
+                .thenAnswer(invocation -> "/products/product-page.html/" + ((ProductUrlFormat.Params) invocation.getArgument(2)).getUrlKey() + ".html");
+
+        List<String> paths = strategy.getPathsToInvalidate(context);
+
+        assertEquals(301, paths.size());
+        assertEquals("/products/product-page.html/product-300.html", paths.get(300));
+        ArgumentCaptor<String> query = ArgumentCaptor.forClass(String.class);
+        verify(graphqlClient, times(2)).execute(query.capture());
+        // Magento caps the page size at 300
+        assertTrue(query.getAllValues().get(0).contains("pageSize:300,currentPage:1"), query.getAllValues().get(0));
+        assertTrue(query.getAllValues().get(1).contains("pageSize:300,currentPage:2"), query.getAllValues().get(1));
+    }
+
+    @Test
+    void testTooManyProductsInvalidateTheStore() {
+        activate("brand", AttributeInvalidation.PathResolution.PRODUCTS, 2);
+        List<ProductInterface> products = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            products.add(new SimpleProduct().setSku("sku" + i).setUrlKey("product-" + i));
+        }
+        mockProducts(products);
+        when(context.getStorePath()).thenReturn(STORE_PATH);
+
+        assertEquals(Collections.singletonList(STORE_PATH), strategy.getPathsToInvalidate(context));
+        verifyNoInteractions(urlProvider);
+        verify(graphqlClient).execute(anyString());
+    }
+
+    @Test
+    void testProductPathResolutionWithGraphqlErrors() {
+        activate("brand", AttributeInvalidation.PathResolution.PRODUCTS, 10);
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("acme"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(graphqlClient.execute(anyString())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getErrors()).thenReturn(Collections.singletonList(new Error()));
+        when(context.getStorePath()).thenReturn(STORE_PATH);
+
+        // the product pages cannot be resolved, invalidate the entire store rather than leave them stale
+        assertEquals(Collections.singletonList(STORE_PATH), strategy.getPathsToInvalidate(context));
+    }
+
+    private void mockProducts(List<ProductInterface> products) {
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("acme"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(graphqlClient.execute(anyString())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(new Query().setProducts(new Products().setTotalCount(products.size()).setItems(products)));
+    }
+}
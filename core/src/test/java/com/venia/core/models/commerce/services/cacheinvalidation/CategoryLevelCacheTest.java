@@ -0,0 +1,94 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.magento.graphql.CategoryTree;
+import com.shopify.graphql.support.ID;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CategoryLevelCacheTest {
+
+    private static final String STORE = "/content/venia/us/en";
+
+    private final CategoryLevelCache cache = new CategoryLevelCache();
+
+    @Test
+    void testUnknownCategories() {
+        assertFalse(cache.isAnyWithinLevel(STORE, Collections.singletonList("MTI="), 3));
+    }
+
+    @Test
+    void testLevelsOfFetchedChildren() {
+        CategoryTree child = new CategoryTree().setUid(new ID("MTM="));
+        cache.update(STORE, Collections.singletonList(new CategoryTree().setUid(new ID("MTI=")).setLevel(3)
+                .setChildren(Collections.singletonList(child))));
+
+        assertTrue(cache.isAnyWithinLevel(STORE, Arrays.asList("MTM=", "MTI="), 3));
+        assertFalse(cache.isAnyWithinLevel(STORE, Arrays.asList("MTM=", "MTQ="), 3));
+        assertFalse(cache.isAnyWithinLevel("/content/venia/de/de", Collections.singletonList("MTI="), 3));
+    }
+
+    @Test
+    void testLeastRecentlyUsedCategoriesAreEvicted() {
+        cache.update(STORE, Collections.singletonList(new CategoryTree().setUid(new ID("MTI=")).setLevel(2)));
+        for (int i = 0; i < CategoryLevelCache.MAX_CATEGORIES_PER_STORE; i++) {
+            cache.update(STORE, Collections.singletonList(new CategoryTree().setUid(new ID("uid-" + i)).setLevel(5)));
+        }
+
+        assertFalse(cache.isAnyWithinLevel(STORE, Collections.singletonList("MTI="), 2));
+        assertTrue(cache.isAnyWithinLevel(STORE, Collections.singletonList("uid-0"), 5));
+    }
+
+    @Test
+    void testEvictedCategories() {
+        cache.update(STORE, Arrays.asList(new CategoryTree().setUid(new ID("MTI=")).setLevel(2),
+                new CategoryTree().setUid(new ID("MTM=")).setLevel(2)));
+        cache.evict(STORE, Collections.singletonList("MTI="));
+
+        assertFalse(cache.isAnyWithinLevel(STORE, Collections.singletonList("MTI="), 2));
+        assertTrue(cache.isAnyWithinLevel(STORE, Collections.singletonList("MTM="), 2));
+    }
+
+    @Test
+    void testLevelsExpire() {
+        CategoryLevelCache.Configuration configuration = mock(CategoryLevelCache.Configuration.class);
+        when(configuration.levelTtlSeconds()).thenReturn(0L);
+        cache.activate(configuration);
+        cache.update(STORE, Collections.singletonList(new CategoryTree().setUid(new ID("MTI=")).setLevel(2)));
+
+        assertFalse(cache.isAnyWithinLevel(STORE, Collections.singletonList("MTI="), 2));
+    }
+
+    @Test
+    void testStructureDepthIsCachedUntilChange() {
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(Integer.valueOf(2), cache.getStructureDepth("/nav", path -> loads.incrementAndGet() > 0 ? 2 : null));
+        assertEquals(Integer.valueOf(2), cache.getStructureDepth("/nav", path -> loads.incrementAndGet() > 0 ? 2 : null));
+        assertEquals(1, loads.get());
+
+        cache.onChange(Collections.emptyList());
+        cache.getStructureDepth("/nav", path -> loads.incrementAndGet() > 0 ? 2 : null);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testDryRunStoresNothing() {
+        AtomicInteger loads = new AtomicInteger();
+        DryRun.run(() -> {
+            cache.update(STORE, Collections.singletonList(new CategoryTree().setUid(new ID("MTI=")).setLevel(2)));
+            assertEquals("/header", cache.getHeaderFragmentPath(STORE, store -> loads.incrementAndGet() > 0 ? "/header" : null));
+            return cache.getStructureDepth("/nav", path -> loads.incrementAndGet() > 0 ? 2 : null);
+        });
+
+        assertFalse(cache.isAnyWithinLevel(STORE, Collections.singletonList("MTI="), 2));
+        cache.getHeaderFragmentPath(STORE, store -> loads.incrementAndGet() > 0 ? "/header" : null);
+        cache.getStructureDepth("/nav", path -> loads.incrementAndGet() > 0 ? 2 : null);
+        assertEquals(4, loads.get());
+    }
+}
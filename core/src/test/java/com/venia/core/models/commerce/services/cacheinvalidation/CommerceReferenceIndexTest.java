@@ -0,0 +1,217 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.osgi.framework.BundleContext;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(AemContextExtension.class)
+public class CommerceReferenceIndexTest {
+
+    private static final String LANDING_PAGE = "/content/venia/us/en/landing";
+    private static final String SALE_PAGE = "/content/venia/us/en/sale";
+
+    private final AemContext context = new AemContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
+    @TempDir
+    File dataDirectory;
+
+    private CommerceReferenceIndex.Configuration configuration;
+    private CommerceReferenceIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context.create().resource("/content", "jcr:primaryType", "sling:OrderedFolder");
+        context.create().page("/content/venia");
+        context.create().page("/content/venia/us");
+        context.create().page("/content/venia/us/en");
+        context.create().page(LANDING_PAGE);
+        context.create().resource(LANDING_PAGE + "/jcr:content/root/productteaser", "selection", "sku1");
+        context.create().resource(LANDING_PAGE + "/jcr:content/root/categorycarousel/items/item0", "categoryId", "uid1");
+        context.create().page(SALE_PAGE);
+        context.create().resource(SALE_PAGE + "/jcr:content/root/productcarousel", "product", new String[] { "sku1", "sku2" });
+        context.resourceResolver().commit();
+
+        configuration = mock(CommerceReferenceIndex.Configuration.class);
+        when(configuration.resource_paths()).thenReturn(new String[] { "/content" });
+        when(configuration.excludedPaths()).thenReturn(new String[] { "/content/dam" });
+        when(configuration.skuProperties()).thenReturn(new String[] { "selection", "product" });
+        when(configuration.categoryProperties()).thenReturn(new String[] { "categoryId" });
+        when(configuration.maxRenderedPaths()).thenReturn(2);
+        when(configuration.saveDelaySeconds()).thenReturn(3600L);
+        index = activate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.deactivate();
+    }
+
+    @Test
+    void testBuildsIndexFromContent() {
+        index.rebuild();
+
+        assertEquals(2, index.size());
+        assertEquals(pages(LANDING_PAGE, SALE_PAGE), index.getPagesForSkus(Collections.singletonList("sku1")));
+        assertEquals(pages(SALE_PAGE), index.getPagesForSkus(Arrays.asList("sku2", "sku3")));
+        assertEquals(pages(LANDING_PAGE), index.getPagesForCategories(Collections.singletonList("uid1")));
+        assertTrue(index.getPagesForSkus(Collections.singletonList("uid1")).isEmpty());
+    }
+
+    @Test
+    void testUpdatesIndexOnChange() throws Exception {
+        index.rebuild();
+        context.resourceResolver().getResource(SALE_PAGE + "/jcr:content/root/productcarousel").adaptTo(ModifiableValueMap.class)
+                .put("product", new String[] { "sku3" });
+        context.resourceResolver().delete(context.resourceResolver().getResource(LANDING_PAGE));
+        context.resourceResolver().commit();
+
+        index.onChange(Arrays.asList(
+                new ResourceChange(ResourceChange.ChangeType.CHANGED, SALE_PAGE + "/jcr:content/root/productcarousel", false),
+                new ResourceChange(ResourceChange.ChangeType.REMOVED, LANDING_PAGE, false)));
+
+        waitFor(() -> index.getPagesForSkus(Collections.singletonList("sku1")).isEmpty());
+        assertEquals(pages(SALE_PAGE), index.getPagesForSkus(Collections.singletonList("sku3")));
+        assertTrue(index.getPagesForCategories(Collections.singletonList("uid1")).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testKeepsDescendantsOfChangedFolder() throws Exception {
+        index.rebuild();
+
+        index.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED, "/content", false)));
+        index.reindexPending();
+
+        assertEquals(2, index.size());
+        assertEquals(pages(LANDING_PAGE, SALE_PAGE), index.getPagesForSkus(Collections.singletonList("sku1")));
+    }
+
+    @Test
+    void testPersistsIndex() throws Exception {
+        index.rebuild();
+        index.deactivate();
+
+        // the crawl on activation fails, the persisted index is kept
+        ResourceResolverFactory failingFactory = mock(ResourceResolverFactory.class);
+        when(failingFactory.getServiceResourceResolver(any())).thenThrow(new LoginException("unavailable"));
+        index = activate(failingFactory);
+
+        assertEquals(pages(LANDING_PAGE, SALE_PAGE), index.getPagesForSkus(Collections.singletonList("sku1")));
+        assertEquals(pages(LANDING_PAGE), index.getPagesForCategories(Collections.singletonList("uid1")));
+    }
+
+    @Test
+    void testRebuildsPersistedIndexOnActivation() throws Exception {
+        index.rebuild();
+        index.deactivate();
+
+        context.resourceResolver().delete(context.resourceResolver().getResource(LANDING_PAGE));
+        context.resourceResolver().commit();
+        index = activate();
+
+        waitFor(() -> index.getPagesForCategories(Collections.singletonList("uid1")).isEmpty());
+        assertTrue(index.getPagesForCategories(Collections.singletonList("uid1")).isEmpty());
+        assertEquals(pages(SALE_PAGE), index.getPagesForSkus(Collections.singletonList("sku1")));
+    }
+
+    @Test
+    void testRecordsRenderedPaths() throws Exception {
+        String categoryPage = "/content/venia/us/en/products/category-page";
+        index.recordRendered(categoryPage + ".html/men.html", Arrays.asList("sku1", "sku2"), Collections.singletonList("uid1"));
+        index.recordRendered(categoryPage + ".html/women.html", Collections.singletonList("sku2"), Collections.singletonList("uid2"));
+        assertEquals(pages(categoryPage + ".html/men.html", categoryPage + ".html/women.html"),
+                index.getRenderedPathsForSkus(Collections.singletonList("sku2")));
+        assertEquals(pages(categoryPage + ".html/women.html"), index.getRenderedPathsForCategories(Collections.singletonList("uid2")));
+
+        // a render replaces the dependencies of its path
+        index.recordRendered(categoryPage + ".html/men.html", Collections.singletonList("sku3"), Collections.emptyList());
+        assertEquals(pages(categoryPage + ".html/women.html"), index.getRenderedPathsForSkus(Collections.singletonList("sku2")));
+
+        // the least recently rendered path is dropped
+        index.recordRendered(LANDING_PAGE + ".html", Collections.singletonList("sku1"), Collections.emptyList());
+        assertEquals(2, index.renderedSize());
+        assertTrue(index.getRenderedPathsForCategories(Collections.singletonList("uid2")).isEmpty());
+
+        index.deactivate();
+        index = activate();
+        assertEquals(pages(LANDING_PAGE + ".html"), index.getRenderedPathsForSkus(Collections.singletonList("sku1")));
+
+        context.resourceResolver().delete(context.resourceResolver().getResource(LANDING_PAGE));
+        context.resourceResolver().commit();
+        index.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.REMOVED, LANDING_PAGE, false)));
+        waitFor(() -> index.getRenderedPathsForSkus(Collections.singletonList("sku1")).isEmpty());
+        assertTrue(index.getRenderedPathsForSkus(Collections.singletonList("sku1")).isEmpty());
+        assertEquals(pages(categoryPage + ".html/men.html"), index.getRenderedPathsForSkus(Collections.singletonList("sku3")));
+    }
+
+    @Test
+    void testIgnoresExcludedPaths() throws Exception {
+        context.create().resource("/content/dam", "jcr:primaryType", "sling:OrderedFolder");
+        context.create().page("/content/dam/venia");
+        context.create().resource("/content/dam/venia/jcr:content/root/productteaser", "selection", "sku9");
+        context.resourceResolver().commit();
+        index.rebuild();
+        assertTrue(index.getPagesForSkus(Collections.singletonList("sku9")).isEmpty());
+
+        index.onChange(Collections.singletonList(
+                new ResourceChange(ResourceChange.ChangeType.CHANGED, "/content/dam/venia/jcr:content/root/productteaser", false)));
+        index.reindexPending();
+        assertTrue(index.getPagesForSkus(Collections.singletonList("sku9")).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testGetPagePath() {
+        assertEquals(LANDING_PAGE, CommerceReferenceIndex.getPagePath(LANDING_PAGE + "/jcr:content/root/productteaser"));
+        assertEquals(LANDING_PAGE, CommerceReferenceIndex.getPagePath(LANDING_PAGE + "/jcr:content"));
+        assertEquals(LANDING_PAGE, CommerceReferenceIndex.getPagePath(LANDING_PAGE));
+    }
+
+    private CommerceReferenceIndex activate() throws IllegalAccessException {
+        return activate(context.getService(ResourceResolverFactory.class));
+    }
+
+    private CommerceReferenceIndex activate(ResourceResolverFactory resourceResolverFactory) throws IllegalAccessException {
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getDataFile(anyString())).thenAnswer(invocation -> new File(dataDirectory, invocation.getArgument(0)));
+        CommerceReferenceIndex referenceIndex = new CommerceReferenceIndex();
+        FieldUtils.writeField(referenceIndex, "resourceResolverFactory", resourceResolverFactory, true);
+        referenceIndex.activate(bundleContext, configuration);
+        return referenceIndex;
+    }
+
+    private static Set<String> pages(String... paths) {
+        return new TreeSet<>(Arrays.asList(paths));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+    }
+}
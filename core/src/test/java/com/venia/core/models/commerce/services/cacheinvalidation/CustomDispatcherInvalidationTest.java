@@ -1,32 +1,82 @@
 package com.venia.core.models.commerce.services.cacheinvalidation;
 
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
-import org.junit.jupiter.api.BeforeEach;
+import com.adobe.cq.commerce.core.components.client.MagentoGraphqlClient;
+import com.adobe.cq.commerce.core.components.services.urls.CategoryUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.ProductUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
+import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
+import com.adobe.cq.commerce.magento.graphql.CategoryTree;
+import com.adobe.cq.commerce.magento.graphql.Products;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.SimpleProduct;
+import com.adobe.cq.commerce.magento.graphql.UrlRewrite;
+import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import com.shopify.graphql.support.ID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class CustomDispatcherInvalidationTest {
 
+    @InjectMocks
     private CustomDispatcherInvalidation cacheInvalidationStrategy;
 
     @Mock
     private CacheInvalidationContext context;
 
-    @BeforeEach
-    void setUp() {
-        cacheInvalidationStrategy = new CustomDispatcherInvalidation();
-    }
+    @Mock
+    private UrlProvider urlProvider;
+
+    @Mock
+    private MagentoGraphqlClient graphqlClient;
+
+    @Mock
+    private GraphqlResponse<Query, Error> graphqlResponse;
+
+    @Mock
+    private CommerceReferenceIndex referenceIndex;
+
+    @Spy
+    private InvalidationAuditLog auditLog = new InvalidationAuditLog();
 
     @Test
     void testGetPattern() {
-        assertEquals("\"sku\":\\s*\"(sku1)", cacheInvalidationStrategy.getPatterns(new String[]{"sku1"}).get(0));
+        assertEquals("\"sku\":\\s*\"(sku1)\"", cacheInvalidationStrategy.getPatterns(new String[]{"sku1"}).get(0));
+    }
+
+    @Test
+    void testGetPatternWithoutIdentifiers() {
+        assertTrue(cacheInvalidationStrategy.getPatterns(new String[]{"", null}).isEmpty());
+    }
+
+    @Test
+    void testGetPatternsInChunks() {
+        CustomDispatcherInvalidation.Configuration configuration = mock(CustomDispatcherInvalidation.Configuration.class);
+        when(configuration.chunkSize()).thenReturn(2);
+        when(configuration.parallelism()).thenReturn(2);
+        cacheInvalidationStrategy.activate(configuration);
+        try {
+            assertEquals(2, cacheInvalidationStrategy.getPatterns(new String[]{"sku1", "sku2", "sku3"}).size());
+        } finally {
+            cacheInvalidationStrategy.deactivate();
+        }
     }
 
     @Test
@@ -34,9 +84,71 @@ class CustomDispatcherInvalidationTest {
         assertEquals("customProductSkus", cacheInvalidationStrategy.getInvalidationType());
     }
 
+    @Test
+    void testGetPathsToInvalidateWithoutSkus() {
+        List<String> paths = cacheInvalidationStrategy.getPathsToInvalidate(context);
+        assertTrue(paths.isEmpty());
+    }
+
     @Test
     void testGetPathsToInvalidateWithValidAttributeData() {
+        SimpleProduct product = new SimpleProduct()
+                .setSku("sku1")
+                .setUrlKey("product-1")
+                .setUrlRewrites(Collections.singletonList(new UrlRewrite().setUrl("men/product-1.html")))
+                .setCategories(Collections.singletonList(new CategoryTree().setUid(new ID("MTI=")).setUrlKey("men").setUrlPath("men")));
+        Query data = new Query().setProducts(new Products().setItems(Collections.singletonList(product)));
+        when(context.getInvalidationParameters()).thenReturn(Arrays.asList("sku1", "sku2"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(graphqlClient.execute(anyString())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(data);
+        when(urlProvider.toProductUrl(isNull(), isNull(), any(ProductUrlFormat.Params.class))).thenAnswer(invocation -> {
+            ProductUrlFormat.Params params = invocation.getArgument(2);
+            return params.getUrlRewrites().isEmpty()
+                    ? "/products/product-page.html/" + params.getUrlKey() + ".html"
+                    : "/products/product-page.html/" + params.getUrlRewrites().get(0) + ".html";
+        });
+        when(urlProvider.formatCategoryUrl(isNull(), isNull(), any(CategoryUrlFormat.Params.class)))
+                .thenReturn("/products/category-page.html/men.html");
+
         List<String> paths = cacheInvalidationStrategy.getPathsToInvalidate(context);
-        assertTrue(paths.isEmpty()); // Currently returns empty list as per implementation
+
+        assertEquals(Arrays.asList("/products/product-page.html/product-1.html", "/products/product-page.html/men/product-1.html",
+                "/products/category-page.html/men.html"), paths);
+
+        InvalidationAuditLog.Record record = auditLog.getRecords().get(0);
+        assertEquals(InvalidationAuditLog.OPERATION_PATHS, record.getOperation());
+        assertEquals(2, record.getParameters());
+        assertEquals(1, record.getGraphqlRequests());
+        assertEquals(3, record.getPaths());
+    }
+
+    @Test
+    void testGetPathsToInvalidateWithReferencingPages() {
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("sku1"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(graphqlClient.execute(anyString())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(new Query().setProducts(new Products().setItems(Collections.emptyList())));
+        when(referenceIndex.getPagesForSkus(Collections.singletonList("sku1")))
+                .thenReturn(new TreeSet<>(Collections.singletonList("/content/venia/us/en/landing")));
+
+        assertEquals(Collections.singletonList("/content/venia/us/en/landing.html"), cacheInvalidationStrategy.getPathsToInvalidate(context));
+    }
+
+    @Test
+    void testGetPathsToInvalidateWithGraphqlErrors() {
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("sku1"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(graphqlClient.execute(anyString())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getErrors()).thenReturn(Collections.singletonList(new Error()));
+        when(context.getStorePath()).thenReturn("/content/venia/us/en");
+
+        // the products cannot be resolved, invalidate the entire store rather than leave their pages stale
+        assertEquals(Collections.singletonList("/content/venia/us/en"), cacheInvalidationStrategy.getPathsToInvalidate(context));
+
+        InvalidationAuditLog.Record record = auditLog.getRecords().get(0);
+        assertEquals(1, record.getGraphqlRequests());
+        assertEquals(1, record.getGraphqlErrors());
+        assertEquals(1, record.getPaths());
     }
 }
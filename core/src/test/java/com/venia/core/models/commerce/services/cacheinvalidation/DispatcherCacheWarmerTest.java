@@ -0,0 +1,140 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DispatcherCacheWarmerTest {
+
+    private final List<String> fetched = new ArrayList<>();
+    private final Set<String> stale = new HashSet<>();
+    private DispatcherCacheWarmer.Configuration configuration;
+    private DispatcherCacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        configuration = mock(DispatcherCacheWarmer.Configuration.class);
+        when(configuration.enabled()).thenReturn(true);
+        when(configuration.dispatcherBaseUrl()).thenReturn("http://dispatcher:80/");
+        when(configuration.delaySeconds()).thenReturn(3600L);
+        when(configuration.requestsPerSecond()).thenReturn(1000);
+        when(configuration.maxPending()).thenReturn(3);
+        when(configuration.maxAttempts()).thenReturn(2);
+        warmer = new DispatcherCacheWarmer() {
+            @Override
+            protected boolean fetch(String url, long invalidatedAt) throws IOException {
+                fetched.add(url);
+                if (url.contains("broken")) {
+                    throw new IOException("connection refused");
+                }
+                return !stale.contains(url);
+            }
+        };
+        warmer.activate(configuration);
+    }
+
+    @AfterEach
+    void tearDown() {
+        warmer.deactivate();
+    }
+
+    @Test
+    void testWarmsInvalidatedPages() {
+        warmer.warm(Arrays.asList("/content/venia/us/en/products/product-page.html/product-1.html",
+                "/content/experience-fragments/venia/us/en/site/header/master", "/content/venia/us/en"));
+        warmer.warm(Arrays.asList("/content/venia/us/en/products/product-page.html/product-1.html",
+                "/content/venia/us/en/products/category-page.html/men.html"));
+        warmer.drain();
+
+        assertEquals(Arrays.asList("http://dispatcher:80/content/venia/us/en/products/product-page.html/product-1.html",
+                "http://dispatcher:80/content/venia/us/en/products/category-page.html/men.html"), fetched);
+    }
+
+    @Test
+    void testLimitsPendingUrlsAndContinuesOnErrors() {
+        warmer.warm(Arrays.asList("/broken.html", "/a.html", "/b.html", "/c.html"));
+        warmer.drain();
+
+        assertEquals(Arrays.asList("http://dispatcher:80/broken.html", "http://dispatcher:80/a.html", "http://dispatcher:80/b.html"),
+                fetched);
+    }
+
+    @Test
+    void testRetriesPagesServedFromBeforeTheFlush() {
+        stale.add("http://dispatcher:80/a.html");
+        warmer.warm(Arrays.asList("/a.html", "/b.html"));
+        warmer.drain();
+        assertEquals(Arrays.asList("http://dispatcher:80/a.html", "http://dispatcher:80/b.html"), fetched);
+
+        fetched.clear();
+        warmer.drain();
+        assertEquals(Collections.singletonList("http://dispatcher:80/a.html"), fetched);
+
+        // the flush seems to have failed, the page is given up after the configured attempts
+        fetched.clear();
+        warmer.drain();
+        assertTrue(fetched.isEmpty());
+    }
+
+    @Test
+    void testWarmsMappedUrls() throws Exception {
+        configureCacheInvalidation(DispatcherCacheWarmer.DISPATCHER_URL_PATH_CONFIGURATION, new String[] {
+                "productUrlPath:/products/product-page.html/(.+):/p/$1",
+                "productUrlPath-1:/products/product-page.html/(.+):/pp/$1",
+                "categoryUrlPath:/products/category-page.html/(.+):/c/$1",
+                "invalid" });
+        warmer.warm(Arrays.asList("/products/product-page.html/men/product-1.html", "/about.html"));
+        warmer.drain();
+
+        assertEquals(Arrays.asList("http://dispatcher:80/p/men/product-1.html", "http://dispatcher:80/pp/men/product-1.html",
+                "http://dispatcher:80/about.html"), fetched);
+    }
+
+    @Test
+    void testDisabled() {
+        when(configuration.enabled()).thenReturn(false);
+        warmer.warm(Collections.singletonList("/a.html"));
+        warmer.drain();
+
+        assertTrue(fetched.isEmpty());
+    }
+
+    @Test
+    void testReadsDispatcherBaseUrlFromCacheInvalidationConfiguration() throws Exception {
+        when(configuration.dispatcherBaseUrl()).thenReturn("");
+        assertNull(warmer.getDispatcherBaseUrl());
+
+        configureCacheInvalidation(DispatcherCacheWarmer.DISPATCHER_BASE_URL, "http://localhost:80");
+
+        assertEquals("http://localhost:80", warmer.getDispatcherBaseUrl());
+    }
+
+    private void configureCacheInvalidation(String name, Object value) throws Exception {
+        ConfigurationAdmin configurationAdmin = mock(ConfigurationAdmin.class);
+        Configuration cacheInvalidationConfiguration = mock(Configuration.class);
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put(name, value);
+        when(cacheInvalidationConfiguration.getProperties()).thenReturn(properties);
+        when(configurationAdmin.listConfigurations(anyString())).thenReturn(new Configuration[] { cacheInvalidationConfiguration });
+        FieldUtils.writeField(warmer, "configurationAdmin", configurationAdmin, true);
+    }
+}
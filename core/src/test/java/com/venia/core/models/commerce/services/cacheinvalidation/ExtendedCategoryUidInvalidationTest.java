@@ -2,24 +2,34 @@ package com.venia.core.models.commerce.services.cacheinvalidation;
 
 import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
 import com.adobe.cq.commerce.core.components.client.MagentoGraphqlClient;
+import com.adobe.cq.commerce.core.components.services.urls.CategoryUrlFormat;
+import com.adobe.cq.commerce.core.components.services.urls.UrlProvider;
 import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
 import com.adobe.cq.commerce.magento.graphql.*;
 import com.adobe.cq.commerce.magento.graphql.gson.Error;
 import com.day.cq.wcm.api.Page;
+import com.shopify.graphql.support.ID;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,15 +48,24 @@ class ExtendedCategoryUidInvalidationTest {
 
     @Mock private GraphqlResponse<Query, Error> graphqlResponse;
     @Mock private Query query;
-    @Mock private List<CategoryTree> categoryList;
-    @Mock private CategoryTree categoryTree;
-    @Mock private CategoryTree categoryTree2;
+    @Mock private UrlProvider urlProvider;
+    @Mock private ExtendedCategoryUidInvalidation.Configuration configuration;
+    @Spy private CategoryLevelCache categoryLevelCache = new CategoryLevelCache();
+    @Mock private CommerceReferenceIndex referenceIndex;
 
+    @InjectMocks
     private ExtendedCategoryUidInvalidation strategy;
 
     @BeforeEach
     void setUp() {
-        strategy = new ExtendedCategoryUidInvalidation();
+        when(configuration.descendantDepth()).thenReturn(2);
+        when(configuration.navigationIncludePaths()).thenReturn(new String[] { "/content/venia/us/en/header.nav.html" });
+        strategy.activate(configuration);
+    }
+
+    @AfterEach
+    void tearDown() {
+        strategy.deactivate();
     }
 
     private void mockRequiredStuffs() {
@@ -77,22 +96,197 @@ class ExtendedCategoryUidInvalidationTest {
     @Test
     void shouldHandleInValidCategories() {
         mockRequiredStuffs();
+        when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
         when(graphqlClient.execute(any())).thenReturn(null);
         List<String> result = strategy.getPathsToInvalidate(context);
-        assertEquals(0, result.size());
+        // categories that cannot be fetched may be part of the navigation
+        assertEquals(Collections.singletonList(TEST_STORE_PATH), result);
+    }
+
+    @Test
+    void shouldInvalidateNavigationAndCategoryPages() {
+        mockRequiredStuffs();
+        CategoryTree child = new CategoryTree().setUid(new ID("MTM=")).setUrlKey("shirts")
+                .setUrlPath("men/shirts");
+        CategoryTree category = new CategoryTree().setUid(new ID("MTI=")).setLevel(2)
+                .setUrlKey("men").setUrlPath("men").setChildren(Collections.singletonList(child));
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(category)));
+        when(urlProvider.formatCategoryUrl(isNull(), isNull(), any(CategoryUrlFormat.Params.class)))
+                .thenAnswer(invocation -> "/c/" + ((CategoryUrlFormat.Params) invocation.getArgument(2)).getUrlPath() + ".html");
+
+        List<String> result = strategy.getPathsToInvalidate(context);
+
+        assertEquals(Arrays.asList("/content/experience-fragments/venia/us/en/site/header/master",
+                "/content/venia/us/en/header.nav.html", "/c/men.html", "/c/men/shirts.html"), result);
+    }
+
+    @Test
+    void shouldInvalidateReferencingPages() {
+        mockRequiredStuffs();
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult()
+                .setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(4))));
+        when(referenceIndex.getPagesForCategories(Collections.singletonList("category1")))
+                .thenReturn(Collections.singleton("/content/venia/us/en/landing"));
+        when(referenceIndex.getRenderedPathsForCategories(Collections.singletonList("category1")))
+                .thenReturn(Collections.singleton("/content/venia/us/en/products/category-page.html/men.html"));
+
+        assertEquals(Arrays.asList("/content/venia/us/en/landing.html", "/content/venia/us/en/products/category-page.html/men.html"),
+                strategy.getPathsToInvalidate(context));
+    }
+
+    @Test
+    void shouldInvalidateStoreWithoutNavigationIncludePaths() {
+        when(configuration.navigationIncludePaths()).thenReturn(new String[0]);
+        strategy.deactivate();
+        strategy.activate(configuration);
+        mockRequiredStuffs();
+        when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult()
+                .setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(2))));
+
+        assertEquals(Collections.singletonList(TEST_STORE_PATH), strategy.getPathsToInvalidate(context));
+    }
+
+    @Test
+    void shouldIgnoreCategoriesBelowNavigation() {
+        mockRequiredStuffs();
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(new CategoryTree().setLevel(4))));
+        assertTrue(strategy.getPathsToInvalidate(context).isEmpty());
+    }
+
+    @Test
+    void shouldDecideFromCachedLevels() {
+        when(configuration.fullStoreInvalidation()).thenReturn(true);
+        strategy.deactivate();
+        strategy.activate(configuration);
+        mockRequiredStuffs();
+        when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(2))));
+
+        assertEquals(Collections.singletonList(TEST_STORE_PATH), strategy.getPathsToInvalidate(context));
+        clearInvocations(graphqlClient);
+        assertEquals(Collections.singletonList(TEST_STORE_PATH), strategy.getPathsToInvalidate(context));
+        verifyNoInteractions(graphqlClient);
+
+        // the cached level of the invalidated category was evicted, it may have moved since
+        assertEquals(Collections.singletonList(TEST_STORE_PATH), strategy.getPathsToInvalidate(context));
+        verify(graphqlClient).execute(any());
+    }
+
+    @Test
+    void shouldFetchCategoriesCachedBelowNavigation() {
+        mockRequiredStuffs();
+        when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(4))));
+
+        assertTrue(strategy.getPathsToInvalidate(context).isEmpty());
+        clearInvocations(graphqlClient);
+        // the category may have moved into the navigation since
+        assertTrue(strategy.getPathsToInvalidate(context).isEmpty());
+
+        verify(graphqlClient).execute(any());
+    }
+
+    @Test
+    void shouldResolveHeaderFromStoreTemplate() {
+        String storePath = "/content/venia/de/de";
+        String template = "/conf/venia/settings/wcm/templates/landing-page";
+        String headerPath = "/content/experience-fragments/venia/de/de/site/header/variation";
+        Resource storeContent = mock(Resource.class);
+        Resource templateHeader = mock(Resource.class);
+        when(context.getStorePath()).thenReturn(storePath);
+        when(context.getResourceResolver()).thenReturn(resourceResolver);
+        when(context.getInvalidationParameters()).thenReturn(Collections.singletonList("category1"));
+        when(context.getGraphqlClient()).thenReturn(graphqlClient);
+        when(resourceResolver.getResource(anyString())).thenReturn(null);
+        when(resourceResolver.getResource(storePath + "/jcr:content")).thenReturn(storeContent);
+        when(storeContent.getValueMap()).thenReturn(new ValueMapDecorator(Collections.singletonMap("cq:template", template)));
+        when(resourceResolver.getResource(template + "/structure/jcr:content/root/header")).thenReturn(templateHeader);
+        when(templateHeader.getValueMap())
+                .thenReturn(new ValueMapDecorator(Collections.singletonMap("fragmentVariationPath", headerPath)));
+        when(resourceResolver.getResource(headerPath + "/jcr:content/root/navigation")).thenReturn(headerResource);
+        when(headerResource.getValueMap()).thenReturn(valueMap);
+        when(valueMap.get("structureDepth", Integer.class)).thenReturn(2);
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(2))));
+
+        List<String> result = strategy.getPathsToInvalidate(context);
+
+        assertEquals(headerPath, result.get(0));
+    }
+
+    @Test
+    void shouldStopFetchingChunksInFullStoreMode() {
+        when(configuration.fullStoreInvalidation()).thenReturn(true);
+        when(configuration.chunkSize()).thenReturn(1);
+        when(configuration.parallelism()).thenReturn(1);
+        strategy.deactivate();
+        strategy.activate(configuration);
+        mockRequiredStuffs();
+        when(context.getInvalidationParameters()).thenReturn(Arrays.asList("category1", "category2", "category3"));
+        when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
+        AtomicInteger requests = new AtomicInteger();
+        when(graphqlClient.execute(any())).thenAnswer(invocation -> {
+            if (requests.incrementAndGet() > 1) {
+                // keep the later chunks busy until they are cancelled
+                Thread.sleep(5000);
+            }
+            return graphqlResponse;
+        });
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult()
+                .setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(1))));
+
+        assertEquals(Collections.singletonList(TEST_STORE_PATH), strategy.getPathsToInvalidate(context));
+        verify(graphqlClient, atMost(2)).execute(any());
     }
 
     @Test
     void shouldHandleForValidCategories() {
+        when(configuration.fullStoreInvalidation()).thenReturn(true);
+        strategy.activate(configuration);
         when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
         mockRequiredStuffs();
         when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
         when(graphqlResponse.getData()).thenReturn(query);
-        when(query.getCategoryList()).thenReturn(categoryList);
-        when(categoryTree.getLevel()).thenReturn(1);
-        when(categoryList.stream()).thenReturn(Stream.of(categoryTree));
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(1))));
         List<String> result = strategy.getPathsToInvalidate(context);
         assertEquals(1, result.size());
         assertEquals(TEST_STORE_PATH, result.get(0));
     }
+
+    @Test
+    void shouldFlushStoreProgressively() throws IllegalAccessException {
+        ProgressiveDispatcherFlush progressiveFlush = mock(ProgressiveDispatcherFlush.class);
+        when(progressiveFlush.isEnabled()).thenReturn(true);
+        when(progressiveFlush.flush(TEST_STORE_PATH, resourceResolver))
+                .thenReturn(Arrays.asList(TEST_STORE_PATH + ".html", TEST_STORE_PATH + "/products"));
+        FieldUtils.writeField(strategy, "progressiveFlush", progressiveFlush, true);
+        when(configuration.fullStoreInvalidation()).thenReturn(true);
+        strategy.activate(configuration);
+        when(context.getStorePath()).thenReturn(TEST_STORE_PATH);
+        mockRequiredStuffs();
+        when(graphqlClient.execute(any())).thenReturn(graphqlResponse);
+        when(graphqlResponse.getData()).thenReturn(query);
+        when(query.getCategories()).thenReturn(new CategoryResult().setItems(Collections.singletonList(new CategoryTree().setUid(new ID("category1")).setLevel(1))));
+
+        assertEquals(Arrays.asList("/content/experience-fragments/venia/us/en/site/header/master",
+                "/content/venia/us/en/header.nav.html"), strategy.getPathsToInvalidate(context));
+        assertEquals(Arrays.asList("/content/experience-fragments/venia/us/en/site/header/master",
+                "/content/venia/us/en/header.nav.html", TEST_STORE_PATH + ".html", TEST_STORE_PATH + "/products"),
+                DryRun.run(() -> strategy.getPathsToInvalidate(context)));
+    }
 }
@@ -0,0 +1,92 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(AemContextExtension.class)
+class HttpInvalidationTransportTest {
+
+    private final AemContext context = new AemContext();
+
+    @Test
+    void testSendsToAllPeersAndRetries() throws InterruptedException, IOException {
+        RecordingTransport transport = new RecordingTransport(3);
+        transport.activate(configuration(true, "http://publish2/fanout", "http://publish3/fanout"));
+
+        transport.send(new InvalidationMessage("publish1/1", 1, "productSkus", new String[] { "VA01" }, Collections.emptyList()));
+
+        assertTrue(transport.requests.await(5, TimeUnit.SECONDS));
+        // the first request to publish3 fails and is retried
+        assertEquals(2, transport.urls.stream().filter("http://publish3/fanout"::equals).count());
+        assertEquals("VA01", InvalidationMessage.fromJson(transport.bodies.get(0)).getIdentifiers()[0]);
+        transport.deactivate();
+    }
+
+    @Test
+    void testDisabledTransportDoesNotSend() {
+        RecordingTransport transport = new RecordingTransport(1);
+        transport.activate(configuration(false, "http://publish2/fanout"));
+
+        transport.send(new InvalidationMessage("publish1/1", 1, "productSkus", new String[] { "VA01" }, Collections.emptyList()));
+        transport.deactivate();
+
+        assertTrue(transport.urls.isEmpty());
+        assertFalse(transport.isAuthorized("secret"));
+    }
+
+    @Test
+    void testIsAuthorized() {
+        HttpInvalidationTransport transport = context.registerInjectActivateService(new HttpInvalidationTransport(), "enabled", true,
+                "sharedSecret", "secret");
+
+        assertTrue(transport.isAuthorized("secret"));
+        assertFalse(transport.isAuthorized("other"));
+        assertFalse(transport.isAuthorized(null));
+    }
+
+    private static HttpInvalidationTransport.Configuration configuration(boolean enabled, String... peerUrls) {
+        HttpInvalidationTransport.Configuration configuration = mock(HttpInvalidationTransport.Configuration.class);
+        when(configuration.enabled()).thenReturn(enabled);
+        when(configuration.peerUrls()).thenReturn(peerUrls);
+        when(configuration.sharedSecret()).thenReturn("secret");
+        when(configuration.retries()).thenReturn(2);
+        when(configuration.timeoutMillis()).thenReturn(1000);
+        return configuration;
+    }
+
+    private static class RecordingTransport extends HttpInvalidationTransport {
+        private final CountDownLatch requests;
+        private final List<String> urls = new CopyOnWriteArrayList<>();
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+        RecordingTransport(int expectedRequests) {
+            this.requests = new CountDownLatch(expectedRequests);
+        }
+
+        @Override
+        protected int post(String url, byte[] body) throws IOException {
+            boolean first = !urls.contains(url);
+            urls.add(url);
+            bodies.add(new String(body, StandardCharsets.UTF_8));
+            requests.countDown();
+            if (first && url.contains("publish3")) {
+                throw new IOException("connection refused");
+            }
+            return 202;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentifierPatternTest {
+
+    @Test
+    void testSingleIdentifier() {
+        assertEquals("\"sku\":\\s*\"(sku1)\"", IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "sku1").toRegex());
+    }
+
+    @Test
+    void testCommonPrefixesAreFactored() {
+        IdentifierPattern pattern = IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "VT11", "VT12", "VA1", "VT1");
+        assertEquals("\"sku\":\\s*\"(V(?:A1|T1(?:1|2)?))\"", pattern.toRegex());
+    }
+
+    @Test
+    void testIdentifiersAreSortedAndFiltered() {
+        IdentifierPattern pattern = IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "b", "a", null, "");
+        assertEquals(new TreeSet<>(Arrays.asList("a", "b")), pattern.getIdentifiers());
+        assertEquals(IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "a", "b").toRegex(), pattern.toRegex());
+    }
+
+    @Test
+    void testRegexMatchesSameEntriesAsPlainAlternation() {
+        List<String> skus = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            skus.add("SKU-" + i);
+        }
+        Pattern trie = Pattern.compile(IdentifierPattern.of(IdentifierPattern.SKU_FIELD, skus).toRegex());
+        Pattern plain = Pattern.compile(IdentifierPattern.SKU_FIELD + "(" + String.join("|", skus) + ")\"");
+        for (String entry : new String[] { "{\"sku\": \"SKU-1999\"}", "{\"sku\":\"SKU-7\"}", "{\"sku\":\"OTHER\"}" }) {
+            assertEquals(plain.matcher(entry).find(), trie.matcher(entry).find(), entry);
+        }
+    }
+
+    @Test
+    void testIdentifiersAreMatchedAsLiterals() {
+        Pattern pattern = Pattern.compile(IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "sku.1", "a+(b)").toRegex());
+        assertTrue(pattern.matcher("{\"sku\":\"sku.1\"}").find());
+        assertTrue(pattern.matcher("{\"sku\":\"a+(b)\"}").find());
+        assertFalse(pattern.matcher("{\"sku\":\"skux1\"}").find());
+        assertFalse(pattern.matcher("{\"sku\":\"sku.10\"}").find());
+        assertFalse(pattern.matcher("{\"sku\":\"aab\"}").find());
+    }
+
+    @Test
+    void testNoPatternsWithoutIdentifiers() {
+        assertTrue(IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "", null).toPatterns().isEmpty());
+        assertEquals(1, IdentifierPattern.of(IdentifierPattern.SKU_FIELD, "a").toPatterns().size());
+    }
+
+    @Test
+    void testCategoryUidRegex() {
+        Pattern pattern = Pattern.compile(IdentifierPattern.of(IdentifierPattern.CATEGORY_UID_FIELD, "MTI=", "MTM=").toRegex());
+        assertTrue(pattern.matcher("{\"items\":[{\"uids\": {\"id\": \"MTA=\"}},{\"uids\":{\"id\":\"MTM=\"}}]}").find());
+        assertFalse(pattern.matcher("{\"uids\":{\"id\":\"MTIz\"}}").find());
+    }
+
+    @Test
+    void testFieldRegex() {
+        Pattern brands = Pattern.compile(IdentifierPattern.of(IdentifierPattern.fieldRegex("brand"), "acme").toRegex());
+        assertTrue(brands.matcher("{\"sku\":\"a\",\"brand\" : \"acme\"}").find());
+        assertTrue(brands.matcher("{\"brand\":\"acme\"}").find());
+        assertFalse(brands.matcher("{\"brand\":\"acme-2\"}").find());
+
+        Pattern priceLists = Pattern.compile(IdentifierPattern.of(IdentifierPattern.fieldRegex("price_list.code"), "b2b").toRegex());
+        assertTrue(priceLists.matcher("{\"price_list\": {\"name\":\"B2B\",\"code\":\"b2b\"}}").find());
+        assertTrue(priceLists.matcher("{\"price_list\":{\"id\":1,\"code\":\"b2b\"}}").find());
+        assertFalse(priceLists.matcher("{\"price_list\":{\"nested\":{\"code\":\"b2b\"}}}").find());
+        assertFalse(priceLists.matcher("{\"code\":\"b2b\"}").find());
+    }
+
+    @Test
+    void testFieldRegexMatchesNumbers() {
+        IdentifierPattern brands = IdentifierPattern.of(IdentifierPattern.fieldRegex("brand_id"), "42", "acme");
+        Pattern regex = Pattern.compile(brands.toRegex());
+        assertTrue(regex.matcher("{\"brand_id\":42,\"sku\":\"a\"}").find());
+        assertTrue(regex.matcher("{\"brand_id\": 42}").find());
+        assertTrue(regex.matcher("{\"brand_id\":\"42\"}").find());
+        assertFalse(regex.matcher("{\"brand_id\":420}").find());
+        assertFalse(regex.matcher("{\"brand_id\":42.5}").find());
+        assertFalse(regex.matcher("{\"brand_id\":4}").find());
+
+        // string identifiers never match unquoted values
+        assertFalse(Pattern.compile(IdentifierPattern.of(IdentifierPattern.fieldRegex("brand"), "acme").toRegex())
+                .matcher("{\"brand\":acme}").find());
+    }
+
+    @Test
+    void testInvalidFieldPath() {
+        assertThrows(IllegalArgumentException.class, () -> IdentifierPattern.fieldRegex("price_list..code"));
+        assertThrows(IllegalArgumentException.class, () -> IdentifierPattern.fieldRegex("brand\"|.*"));
+        assertThrows(IllegalArgumentException.class, () -> IdentifierPattern.fieldRegex(null));
+    }
+}
@@ -0,0 +1,82 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InvalidationAuditLogTest {
+
+    private InvalidationAuditLog auditLog;
+
+    @BeforeEach
+    void setUp() {
+        InvalidationAuditLog.Configuration configuration = mock(InvalidationAuditLog.Configuration.class);
+        when(configuration.capacity()).thenReturn(3);
+        auditLog = new InvalidationAuditLog();
+        auditLog.activate(configuration);
+    }
+
+    @Test
+    void testKeepsMostRecentRecords() {
+        for (int i = 1; i <= 5; i++) {
+            InvalidationAuditLog.finish(auditLog, InvalidationAuditLog.start("productSkus", InvalidationAuditLog.OPERATION_PATHS,
+                    "/content/venia/us/en", i));
+        }
+
+        List<InvalidationAuditLog.Record> records = auditLog.getRecords();
+        assertEquals(3, records.size());
+        assertEquals(5, records.get(0).getParameters());
+        assertEquals(4, records.get(1).getParameters());
+        assertEquals(3, records.get(2).getParameters());
+    }
+
+    @Test
+    void testRecordsPatterns() {
+        List<String> patterns = InvalidationAuditLog.recordPatterns(auditLog, "customProductSkus", new String[] { "sku1", "sku2" },
+                () -> Arrays.asList("pattern1", "pattern2"));
+
+        assertEquals(Arrays.asList("pattern1", "pattern2"), patterns);
+        InvalidationAuditLog.Record record = auditLog.getRecords().get(0);
+        assertEquals("customProductSkus", record.getInvalidationType());
+        assertEquals(InvalidationAuditLog.OPERATION_PATTERNS, record.getOperation());
+        assertNull(record.getStorePath());
+        assertEquals(2, record.getParameters());
+        assertEquals(2, record.getPatterns());
+        assertTrue(record.getPatternBuildMicros() >= 0);
+    }
+
+    @Test
+    void testRecordsFailedPatterns() {
+        assertThrows(IllegalStateException.class, () -> InvalidationAuditLog.recordPatterns(auditLog, "customProductSkus",
+                new String[] { "sku1" }, () -> {
+                    throw new IllegalStateException("Invalid identifier");
+                }));
+
+        assertEquals(0, auditLog.getRecords().get(0).getPatterns());
+    }
+
+    @Test
+    void testRecordsWithoutAuditLog() {
+        InvalidationAuditLog.Record record = InvalidationAuditLog.start("categoryUids", InvalidationAuditLog.OPERATION_PATHS, null, 1);
+        assertEquals("data", record.countGraphqlRequest(() -> "data"));
+        assertThrows(IllegalStateException.class, () -> record.countGraphqlRequest(() -> {
+            throw new IllegalStateException("GraphQL error");
+        }));
+        record.setPaths(4);
+        InvalidationAuditLog.finish(null, record);
+
+        assertEquals(2, record.getGraphqlRequests());
+        assertEquals(1, record.getGraphqlErrors());
+        assertEquals(4, record.getPaths());
+        assertTrue(auditLog.getRecords().isEmpty());
+    }
+}
@@ -0,0 +1,146 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationBatchesTest {
+
+    @Test
+    void testPartition() {
+        List<List<String>> chunks = InvalidationBatches.partition(Arrays.asList("a", "b", "a", "", null, "c"), 2);
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Collections.singletonList("c")), chunks);
+        assertTrue(InvalidationBatches.partition(null, 2).isEmpty());
+    }
+
+    @Test
+    void testPatternPerChunk() {
+        List<String> patterns = InvalidationBatches.patterns(IdentifierPattern.SKU_FIELD, new String[] { "a1", "a2", "b" }, 2);
+        assertEquals(Arrays.asList("\"sku\":\\s*\"(a(?:1|2))\"", "\"sku\":\\s*\"(b)\""), patterns);
+        assertTrue(InvalidationBatches.patterns(IdentifierPattern.SKU_FIELD, null, 2).isEmpty());
+    }
+
+    @Test
+    void testResolveInParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<List<String>> chunks = InvalidationBatches.partition(Arrays.asList("a", "b", "c", "d"), 1);
+            List<String> paths = InvalidationBatches.resolve(chunks,
+                    chunk -> Arrays.asList("/p/shared.html", "/p/" + chunk.get(0) + ".html"), executor, 5000);
+            assertEquals(Arrays.asList("/p/shared.html", "/p/a.html", "/p/b.html", "/p/c.html", "/p/d.html"), paths);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testResolveFailsWithChunk() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<List<String>> chunks = InvalidationBatches.partition(Arrays.asList("a", "b", "c", "d"), 1);
+            Function<List<String>, List<String>> resolver = chunk -> {
+                if ("c".equals(chunk.get(0))) {
+                    throw new IllegalStateException("failed");
+                }
+                return Collections.singletonList("/p/" + chunk.get(0) + ".html");
+            };
+            assertThrows(IllegalStateException.class, () -> InvalidationBatches.resolve(chunks, resolver, executor, 5000));
+            assertThrows(IllegalStateException.class, () -> InvalidationBatches.resolve(chunks, resolver, null, 5000));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testResolveTimesOut() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<List<String>> chunks = InvalidationBatches.partition(Arrays.asList("a", "b"), 1);
+            CountDownLatch never = new CountDownLatch(1);
+            assertThrows(IllegalStateException.class, () -> InvalidationBatches.resolve(chunks, chunk -> {
+                try {
+                    never.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.emptyList();
+            }, executor, 50));
+            // the chunks are cancelled, the blocked ones interrupted
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCollectStopsEarly() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<List<String>> chunks = InvalidationBatches.partition(Arrays.asList("1", "2", "3", "4"), 1);
+            CountDownLatch thirdStarted = new CountDownLatch(1);
+            CountDownLatch thirdInterrupted = new CountDownLatch(1);
+            CountDownLatch never = new CountDownLatch(1);
+            List<Integer> levels = InvalidationBatches.collect(chunks, chunk -> {
+                int level = Integer.parseInt(chunk.get(0));
+                try {
+                    if (level == 2) {
+                        // the second chunk completes while the third one is running
+                        thirdStarted.await(5, TimeUnit.SECONDS);
+                    } else if (level > 2) {
+                        if (level == 3) {
+                            thirdStarted.countDown();
+                        }
+                        never.await(10, TimeUnit.SECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    if (level == 3) {
+                        thirdInterrupted.countDown();
+                    }
+                }
+                return Collections.singletonList(level);
+            }, chunkLevels -> chunkLevels.contains(2), executor, 5000);
+
+            assertEquals(Arrays.asList(1, 2), levels);
+            assertTrue(thirdInterrupted.await(5, TimeUnit.SECONDS));
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertEquals(Arrays.asList(1, 2, 3, 4), InvalidationBatches.collect(chunks,
+                    chunk -> Collections.singletonList(Integer.parseInt(chunk.get(0))), null, null, 5000));
+            assertEquals(Arrays.asList(1, 2), InvalidationBatches.collect(chunks,
+                    chunk -> Collections.singletonList(Integer.parseInt(chunk.get(0))), chunkLevels -> chunkLevels.contains(2), null, 5000));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCollectFailsWithChunk() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<List<String>> chunks = InvalidationBatches.partition(Arrays.asList("1", "2", "3"), 1);
+            Function<List<String>, List<Integer>> fetcher = chunk -> {
+                if ("3".equals(chunk.get(0))) {
+                    throw new IllegalStateException("GraphQL error");
+                }
+                return Collections.singletonList(Integer.parseInt(chunk.get(0)));
+            };
+            assertThrows(IllegalStateException.class, () -> InvalidationBatches.collect(chunks, fetcher, null, executor, 5000));
+            assertThrows(IllegalStateException.class, () -> InvalidationBatches.collect(chunks, fetcher, null, null, 5000));
+            // a chunk that satisfies the condition first decides
+            assertEquals(Arrays.asList(1), InvalidationBatches.collect(chunks, fetcher, chunkLevels -> chunkLevels.contains(1), null, 5000));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.day.cq.replication.ReplicationActionType;
+import com.day.cq.replication.Replicator;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(AemContextExtension.class)
+public class InvalidationCoalescerTest {
+
+    private final AemContext context = new AemContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
+    private InvalidationCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = context.registerInjectActivateService(new InvalidationCoalescer(),
+                "windowMillis", 60000L, "maxIdentifiers", 5);
+    }
+
+    @Test
+    void testMergesRequestsPerStoreAndType() {
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("productSkus", Arrays.asList("sku1", "sku2")), false);
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("productSkus", Arrays.asList("sku2", "sku3")), false);
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("categoryUids", Collections.singletonList("uid1")), false);
+        coalescer.submit("/content/venia/de/de", Collections.singletonMap("productSkus", Collections.singletonList("sku1")), true);
+        assertEquals(2, coalescer.getPendingStores());
+
+        coalescer.flush();
+
+        assertEquals(0, coalescer.getPendingStores());
+        List<ValueMap> commands = getCommands();
+        assertEquals(2, commands.size());
+
+        ValueMap us = commands.get(0);
+        assertEquals("/content/venia/us/en", us.get("storePath", String.class));
+        assertArrayEquals(new String[] { "sku1", "sku2", "sku3" }, us.get("productSkus", String[].class));
+        assertArrayEquals(new String[] { "uid1" }, us.get("categoryUids", String[].class));
+        assertNull(us.get("invalidateAll", Boolean.class));
+
+        ValueMap de = commands.get(1);
+        assertEquals("/content/venia/de/de", de.get("storePath", String.class));
+        assertArrayEquals(new String[] { "sku1" }, de.get("productSkus", String[].class));
+        assertTrue(de.get("invalidateAll", false));
+    }
+
+    @Test
+    void testWritesCommandRightAway() throws Exception {
+        coalescer.write("/content/venia/us/en", Collections.singletonMap("productSkus", Arrays.asList("sku1", "sku2")), false);
+
+        assertEquals(0, coalescer.getPendingStores());
+        List<ValueMap> commands = getCommands();
+        assertEquals(1, commands.size());
+        assertEquals("/content/venia/us/en", commands.get(0).get("storePath", String.class));
+        assertArrayEquals(new String[] { "sku1", "sku2" }, commands.get(0).get("productSkus", String[].class));
+    }
+
+    @Test
+    void testKeepsWindowIfCommandsCannotBeWritten() throws Exception {
+        ResourceResolverFactory failingFactory = mock(ResourceResolverFactory.class);
+        when(failingFactory.getServiceResourceResolver(any())).thenThrow(new LoginException("unavailable"));
+        FieldUtils.writeField(coalescer, "resourceResolverFactory", failingFactory, true);
+
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("productSkus", Collections.singletonList("sku1")), false);
+        coalescer.flush();
+        assertEquals(1, coalescer.getPendingStores());
+
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("productSkus", Collections.singletonList("sku2")), true);
+        FieldUtils.writeField(coalescer, "resourceResolverFactory", context.getService(ResourceResolverFactory.class), true);
+        coalescer.flush();
+
+        assertEquals(0, coalescer.getPendingStores());
+        List<ValueMap> commands = getCommands();
+        assertEquals(1, commands.size());
+        assertArrayEquals(new String[] { "sku1", "sku2" }, commands.get(0).get("productSkus", String[].class));
+        assertTrue(commands.get(0).get("invalidateAll", false));
+    }
+
+    @Test
+    void testReplicatesCommands() throws Exception {
+        Replicator replicator = mock(Replicator.class);
+        FieldUtils.writeField(coalescer, "replicator", replicator, true);
+        Map<String, Object> expired = new HashMap<>();
+        expired.put("storePath", "/content/venia/us/en");
+        expired.put(InvalidationCoalescer.PROPERTY_TIMESTAMP, 1L);
+        context.create().resource(InvalidationCoalescer.WORKING_AREA + "/cmd-venia-1-1", expired);
+        context.resourceResolver().commit();
+
+        coalescer.write("/content/venia/us/en", Collections.singletonMap("productSkus", Collections.singletonList("sku1")), false);
+
+        verify(replicator).replicate(any(), eq(ReplicationActionType.ACTIVATE),
+                startsWith(InvalidationCoalescer.WORKING_AREA + "/" + InvalidationCoalescer.NODE_NAME_PREFIX));
+        verify(replicator).replicate(any(), eq(ReplicationActionType.DELETE),
+                eq(InvalidationCoalescer.WORKING_AREA + "/cmd-venia-1-1"));
+    }
+
+    @Test
+    void testFlushWithoutRequests() {
+        coalescer.flush();
+        assertNull(context.resourceResolver().getResource(InvalidationCoalescer.WORKING_AREA));
+    }
+
+    @Test
+    void testRemovesExpiredCommands() throws PersistenceException {
+        Map<String, Object> expired = new HashMap<>();
+        expired.put("storePath", "/content/venia/us/en");
+        expired.put(InvalidationCoalescer.PROPERTY_TIMESTAMP, 1L);
+        context.create().resource(InvalidationCoalescer.WORKING_AREA + "/cmd-venia-1-1", expired);
+        context.create().resource(InvalidationCoalescer.WORKING_AREA + "/cmd-other", "storePath", "/content/venia/us/en");
+        context.resourceResolver().commit();
+
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("productSkus", Collections.singletonList("sku1")), false);
+        coalescer.flush();
+
+        context.resourceResolver().refresh();
+        assertNull(context.resourceResolver().getResource(InvalidationCoalescer.WORKING_AREA + "/cmd-venia-1-1"));
+        assertNotNull(context.resourceResolver().getResource(InvalidationCoalescer.WORKING_AREA + "/cmd-other"));
+        assertEquals(1, getCommands().size());
+    }
+
+    @Test
+    void testFlushesWhenMaxIdentifiersReached() throws InterruptedException {
+        coalescer.submit("/content/venia/us/en", Collections.singletonMap("productSkus",
+                Arrays.asList("sku1", "sku2", "sku3", "sku4", "sku5")), false);
+
+        for (int i = 0; i < 50 && coalescer.getPendingStores() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, coalescer.getPendingStores());
+        assertFalse(getCommands().isEmpty());
+    }
+
+    private List<ValueMap> getCommands() {
+        context.resourceResolver().refresh();
+        List<ValueMap> commands = new ArrayList<>();
+        Resource workingArea = context.resourceResolver().getResource(InvalidationCoalescer.WORKING_AREA);
+        if (workingArea != null) {
+            for (Resource child : workingArea.getChildren()) {
+                if (child.getName().startsWith(InvalidationCoalescer.NODE_NAME_PREFIX)) {
+                    commands.add(child.getValueMap());
+                }
+            }
+        }
+        return commands;
+    }
+}
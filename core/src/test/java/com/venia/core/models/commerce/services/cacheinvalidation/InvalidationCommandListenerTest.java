@@ -0,0 +1,74 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(AemContextExtension.class)
+public class InvalidationCommandListenerTest {
+
+    private final AemContext context = new AemContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+    private final EventAdmin eventAdmin = mock(EventAdmin.class);
+
+    private InvalidationCommandListener listener;
+
+    @BeforeEach
+    void setUp() throws IllegalAccessException {
+        listener = context.registerInjectActivateService(new InvalidationCommandListener());
+        FieldUtils.writeField(listener, "eventAdmin", eventAdmin, true);
+    }
+
+    @Test
+    void testPostsOneEventPerInvalidationType() throws PersistenceException {
+        context.create().resource("/var/cif/cacheinvalidation/cmd-1",
+                "storePath", "/content/venia/us/en",
+                "productSkus", new String[] { "sku1", "sku2" },
+                "categoryUids", new String[] { "uid1" },
+                "veniaTimestamp", 1L);
+        context.resourceResolver().commit();
+
+        listener.onChange(Collections.singletonList(added("/var/cif/cacheinvalidation/cmd-1")));
+
+        ArgumentCaptor<Event> events = ArgumentCaptor.forClass(Event.class);
+        verify(eventAdmin, times(2)).postEvent(events.capture());
+        List<String> topics = events.getAllValues().stream().map(Event::getTopic).sorted().collect(Collectors.toList());
+        assertEquals(Arrays.asList(InvalidationEvents.topic("categoryUids"), InvalidationEvents.topic("productSkus")), topics);
+        Event skus = events.getAllValues().stream().filter(event -> event.getTopic().endsWith("/productSkus")).findFirst().get();
+        assertEquals(Arrays.asList("sku1", "sku2"), InvalidationEvents.getIdentifiers(skus));
+    }
+
+    @Test
+    void testIgnoresRemovedAndNestedResources() throws PersistenceException {
+        context.create().resource("/var/cif/cacheinvalidation/cmd-1/child", "productSkus", new String[] { "sku1" });
+        context.resourceResolver().commit();
+
+        listener.onChange(Arrays.asList(added("/var/cif/cacheinvalidation/cmd-2"), added("/var/cif/cacheinvalidation/cmd-1/child")));
+
+        verify(eventAdmin, never()).postEvent(any());
+    }
+
+    private static ResourceChange added(String path) {
+        return new ResourceChange(ResourceChange.ChangeType.ADDED, path, false);
+    }
+}
@@ -0,0 +1,148 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.graphql.client.GraphqlClient;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(AemContextExtension.class)
+class InvalidationDistributorTest {
+
+    private static final List<String> PATTERNS = Collections.singletonList("\"sku\":\\s*\"(VA01)\"");
+
+    private final AemContext context = new AemContext();
+    private final LocalInvalidationTransport transport = new LocalInvalidationTransport();
+    private final List<InvalidationMessage> sent = new ArrayList<>();
+    private GraphqlClient graphqlClient;
+    private InvalidationDistributor publisher1;
+    private InvalidationDistributor publisher2;
+
+    @BeforeEach
+    void setUp() {
+        graphqlClient = mock(GraphqlClient.class);
+        context.registerService(GraphqlClient.class, graphqlClient);
+        context.registerService(InvalidationTransport.class, transport);
+        publisher1 = context.registerInjectActivateService(new InvalidationDistributor(), "enabled", true, "instanceId", "publish1");
+        publisher2 = context.registerInjectActivateService(new InvalidationDistributor(), "enabled", true, "instanceId", "publish2");
+        transport.connect(sent::add);
+        transport.connect(publisher1::receive);
+        transport.connect(publisher2::receive);
+    }
+
+    @Test
+    void testPeersApplyPublishedInvalidation() {
+        publisher1.publish("productSkus", new String[] { "VA01" }, PATTERNS);
+
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).getOrigin().startsWith("publish1/"));
+        // applied once, by the second publisher only
+        verify(graphqlClient).invalidateCache(isNull(), isNull(), any(String[].class));
+    }
+
+    @Test
+    void testRepeatedInvalidationIsBroadcastAgain() {
+        publisher1.publish("productSkus", new String[] { "VA01" }, PATTERNS);
+        publisher1.publish("productSkus", new String[] { "VA01" }, PATTERNS);
+
+        // the product may have changed again, both invalidations are applied
+        assertEquals(2, sent.size());
+        verify(graphqlClient, times(2)).invalidateCache(isNull(), isNull(), any(String[].class));
+    }
+
+    @Test
+    void testDuplicateMessagesAreDropped() {
+        assertTrue(publisher2.receive(new InvalidationMessage("publish3/1", 2, "productSkus", new String[] { "VA02" }, PATTERNS)));
+        assertFalse(publisher2.receive(new InvalidationMessage("publish3/1", 2, "productSkus", new String[] { "VA02" }, PATTERNS)));
+        assertTrue(publisher2.receive(new InvalidationMessage("publish3/2", 2, "productSkus", new String[] { "VA02" }, PATTERNS)));
+        assertFalse(publisher2.receive(new InvalidationMessage(publisher2.getOrigin(), 9, "productSkus", new String[] { "VA04" },
+                PATTERNS)));
+    }
+
+    @Test
+    void testSameInvalidationComputedByPeersIsAppliedOnce() {
+        // both publishers compute the same invalidation from a replicated request
+        publisher1.publish("productSkus", new String[] { "VA01" }, PATTERNS);
+        publisher2.publish("productSkus", new String[] { "VA01" }, PATTERNS);
+
+        assertEquals(1, sent.size());
+        verify(graphqlClient).invalidateCache(isNull(), isNull(), any(String[].class));
+    }
+
+    @Test
+    void testMessagesAreAppliedInOrderPerOrigin() {
+        assertTrue(publisher2.receive(new InvalidationMessage("publish3/1", 1, "productSkus", new String[] { "VA01" },
+                Collections.singletonList("1"))));
+        assertTrue(publisher2.receive(new InvalidationMessage("publish3/1", 3, "productSkus", new String[] { "VA03" },
+                Collections.singletonList("3"))));
+        verify(graphqlClient).invalidateCache(isNull(), isNull(), any(String[].class));
+
+        assertTrue(publisher2.receive(new InvalidationMessage("publish3/1", 2, "productSkus", new String[] { "VA02" },
+                Collections.singletonList("2"))));
+
+        InOrder inOrder = inOrder(graphqlClient);
+        inOrder.verify(graphqlClient).invalidateCache(isNull(), isNull(), aryEq(new String[] { "1" }));
+        inOrder.verify(graphqlClient).invalidateCache(isNull(), isNull(), aryEq(new String[] { "2" }));
+        inOrder.verify(graphqlClient).invalidateCache(isNull(), isNull(), aryEq(new String[] { "3" }));
+    }
+
+    @Test
+    void testMissingMessagesAreSkippedAfterTimeout() {
+        InvalidationDistributor distributor = context.registerInjectActivateService(new InvalidationDistributor(),
+                "enabled", true, "instanceId", "publish4", "orderingTimeoutMillis", 50L);
+
+        assertTrue(distributor.receive(new InvalidationMessage("publish3/1", 1, "productSkus", new String[] { "VA01" },
+                Collections.singletonList("1"))));
+        assertTrue(distributor.receive(new InvalidationMessage("publish3/1", 3, "productSkus", new String[] { "VA03" },
+                Collections.singletonList("3"))));
+        verify(graphqlClient, timeout(5000)).invalidateCache(isNull(), isNull(), aryEq(new String[] { "3" }));
+
+        // a late message is still applied
+        assertTrue(distributor.receive(new InvalidationMessage("publish3/1", 2, "productSkus", new String[] { "VA02" },
+                Collections.singletonList("2"))));
+        verify(graphqlClient).invalidateCache(isNull(), isNull(), aryEq(new String[] { "2" }));
+    }
+
+    @Test
+    void testRemembersLimitedNumberOfMessages() {
+        InvalidationDistributor distributor = context.registerInjectActivateService(new InvalidationDistributor(),
+                "enabled", true, "instanceId", "publish4", "maxTracked", 1);
+        InvalidationMessage first = new InvalidationMessage("publish3/1", 1, "productSkus", new String[] { "VA01" }, PATTERNS);
+
+        assertTrue(distributor.receive(first));
+        assertTrue(distributor.receive(new InvalidationMessage("publish3/1", 2, "productSkus", new String[] { "VA02" }, PATTERNS)));
+        // the first message was forgotten, a late redelivery is applied again
+        assertTrue(distributor.receive(first));
+    }
+
+    @Test
+    void testDisabledDistributorDoesNotPublish() {
+        InvalidationDistributor disabled = context.registerInjectActivateService(new InvalidationDistributor());
+
+        disabled.publish("productSkus", new String[] { "VA01" }, PATTERNS);
+        InvalidationDistributor.publish(null, "productSkus", new String[] { "VA01" }, PATTERNS);
+
+        assertTrue(sent.isEmpty());
+        assertFalse(disabled.receive(new InvalidationMessage("publish3/1", 1, "categoryUids", new String[] { "MTI=" },
+                Arrays.asList("a", "b"))));
+        verify(graphqlClient, never()).invalidateCache(any(), any(), any());
+    }
+}
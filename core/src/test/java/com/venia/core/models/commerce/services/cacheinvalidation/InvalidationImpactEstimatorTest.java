@@ -0,0 +1,97 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationContext;
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.CacheInvalidationStrategy;
+import com.adobe.cq.commerce.core.cacheinvalidation.spi.DispatcherCacheInvalidationStrategy;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InvalidationImpactEstimatorTest {
+
+    private static final String STORE_PATH = "/content/venia/us/en";
+
+    private final InvalidationImpactEstimator estimator = new InvalidationImpactEstimator();
+    private final ResourceResolver resolver = mock(ResourceResolver.class);
+
+    @Test
+    void testCollectsPatternsAndPathsOfAllStrategies() {
+        DispatcherCacheInvalidationStrategy dispatcherStrategy = mock(DispatcherCacheInvalidationStrategy.class);
+        when(dispatcherStrategy.getInvalidationType()).thenReturn("productSkus");
+        when(dispatcherStrategy.getPatterns(any())).thenReturn(Collections.singletonList("pattern-1"));
+        when(dispatcherStrategy.getPathsToInvalidate(any())).thenAnswer(invocation -> {
+            CacheInvalidationContext context = invocation.getArgument(0);
+            assertTrue(DryRun.isActive());
+            assertEquals(STORE_PATH, context.getStorePath());
+            assertEquals(Arrays.asList("VA01", "VA02"), context.getInvalidationParameters());
+            return Arrays.asList("/content/venia/us/en/products/product-page.html/va01.html",
+                    "/content/venia/us/en/products/product-page.html/va02.html");
+        });
+        CacheInvalidationStrategy strategy = mock(CacheInvalidationStrategy.class);
+        when(strategy.getInvalidationType()).thenReturn("productSkus");
+        when(strategy.getPatterns(any())).thenReturn(Arrays.asList("pattern-1", "pattern-2"));
+        estimator.bindDispatcherStrategy(dispatcherStrategy);
+        estimator.bindStrategy(strategy);
+
+        List<InvalidationImpactEstimator.Impact> impacts = estimator.estimate(resolver, STORE_PATH,
+                Collections.singletonMap("productSkus", Arrays.asList("VA01", "VA02")), 1);
+
+        InvalidationImpactEstimator.Impact impact = impacts.get(0);
+        assertEquals(2, impact.getIdentifiers());
+        assertEquals(2, impact.getStrategies());
+        assertEquals(2, impact.getPatterns());
+        assertEquals(Collections.singletonList("pattern-1"), impact.getPatternSample());
+        assertEquals(2, impact.getPaths());
+        assertEquals(1, impact.getPathSample().size());
+        assertFalse(DryRun.isActive());
+    }
+
+    @Test
+    void testCollectsErrorsAndUnknownTypes() {
+        CacheInvalidationStrategy failing = mock(CacheInvalidationStrategy.class);
+        when(failing.getInvalidationType()).thenReturn("categoryUids");
+        when(failing.getPatterns(any())).thenThrow(new IllegalStateException("backend unavailable"));
+        estimator.bindStrategy(failing);
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("categoryUids", Collections.singletonList("MTI="));
+        parameters.put("unknownType", Collections.singletonList("x"));
+
+        List<InvalidationImpactEstimator.Impact> impacts = estimator.estimate(resolver, STORE_PATH, parameters, 10);
+
+        assertEquals(1, impacts.get(0).getErrors().size());
+        assertTrue(impacts.get(0).getErrors().get(0).endsWith("backend unavailable"));
+        assertEquals("unknownType", impacts.get(1).getInvalidationType());
+        assertEquals(0, impacts.get(1).getStrategies());
+    }
+
+    @Test
+    void testDryRunHasNoSideEffects() throws IllegalAccessException {
+        CustomInvalidation strategy = new CustomInvalidation();
+        InvalidationAuditLog.Configuration configuration = mock(InvalidationAuditLog.Configuration.class);
+        when(configuration.capacity()).thenReturn(10);
+        InvalidationAuditLog auditLog = new InvalidationAuditLog();
+        auditLog.activate(configuration);
+        FieldUtils.writeField(strategy, "auditLog", auditLog, true);
+        estimator.bindStrategy(strategy);
+
+        List<InvalidationImpactEstimator.Impact> impacts = estimator.estimate(resolver, STORE_PATH,
+                Collections.singletonMap("customCategoryUids", Collections.singletonList("MTI=")), 10);
+
+        assertEquals(1, impacts.get(0).getPatterns());
+        assertTrue(auditLog.getRecords().isEmpty());
+        // outside of the dry run the patterns are recorded again
+        strategy.getPatterns(new String[] { "MTI=" });
+        assertEquals(1, auditLog.getRecords().size());
+    }
+}
@@ -0,0 +1,118 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InvalidationJobConsumerTest {
+
+    @Mock
+    private InvalidationCoalescer coalescer;
+
+    @Mock
+    private JobManager jobManager;
+
+    @Mock
+    private Job job;
+
+    @InjectMocks
+    private InvalidationJobConsumer consumer;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWritesCommandOfJob() throws Exception {
+        mockRequest(job, "job1", Arrays.asList("sku1", "sku2"), true);
+
+        assertEquals(JobConsumer.JobResult.OK, consumer.process(job));
+
+        ArgumentCaptor<Map<String, Set<String>>> written = ArgumentCaptor.forClass(Map.class);
+        verify(coalescer).write(eq("/content/venia/us/en"), written.capture(), eq(true));
+        assertEquals(Collections.singletonMap("productSkus", new LinkedHashSet<>(Arrays.asList("sku1", "sku2"))), written.getValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMergesQueuedJobsOfStore() throws Exception {
+        mockRequest(job, "job1", Arrays.asList("sku1", "sku2"), false);
+        Job queued = mock(Job.class);
+        mockRequest(queued, "job2", Arrays.asList("sku2", "sku3"), false);
+        when(jobManager.findJobs(JobManager.QueryType.QUEUED, InvalidationJobConsumer.getTopic("/content/venia/us/en"),
+                InvalidationJobConsumer.MAX_MERGED_JOBS)).thenReturn(Arrays.asList(job, queued));
+
+        assertEquals(JobConsumer.JobResult.OK, consumer.process(job));
+
+        ArgumentCaptor<Map<String, Set<String>>> written = ArgumentCaptor.forClass(Map.class);
+        verify(coalescer).write(eq("/content/venia/us/en"), written.capture(), eq(false));
+        assertEquals(Collections.singletonMap("productSkus", new LinkedHashSet<>(Arrays.asList("sku1", "sku2", "sku3"))),
+                written.getValue());
+        verify(jobManager).removeJobById("job2");
+        verify(jobManager, never()).removeJobById("job1");
+    }
+
+    @Test
+    void testFailsJobIfCommandCannotBeWritten() throws Exception {
+        mockRequest(job, "job1", Collections.singletonList("sku1"), false);
+        Job queued = mock(Job.class);
+        mockRequest(queued, "job2", Collections.singletonList("sku2"), false);
+        when(jobManager.findJobs(JobManager.QueryType.QUEUED, InvalidationJobConsumer.getTopic("/content/venia/us/en"),
+                InvalidationJobConsumer.MAX_MERGED_JOBS)).thenReturn(Collections.singletonList(queued));
+        doThrow(new PersistenceException("failed")).when(coalescer).write(anyString(), any(), anyBoolean());
+
+        // the job is retried rather than acknowledged without a command, and the merged jobs stay queued
+        assertEquals(JobConsumer.JobResult.FAILED, consumer.process(job));
+        verify(jobManager, never()).removeJobById(anyString());
+    }
+
+    @Test
+    void testCancelsJobWithoutStorePath() throws Exception {
+        assertEquals(JobConsumer.JobResult.CANCEL, consumer.process(job));
+        verify(coalescer, never()).write(anyString(), any(), anyBoolean());
+    }
+
+    @Test
+    void testTopicPerStore() {
+        assertEquals("com/venia/commerce/cacheinvalidation/request/content_venia_us_en",
+                InvalidationJobConsumer.getTopic("/content/venia/us/en"));
+        assertEquals("com/venia/commerce/cacheinvalidation/request/content_venia-b_fr_ca",
+                InvalidationJobConsumer.getTopic("/content/venia-b/fr.ca"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void mockRequest(Job job, String id, List<String> skus, boolean invalidateAll) {
+        Map<String, Object> properties = InvalidationJobConsumer.toJobProperties("/content/venia/us/en",
+                Collections.singletonMap("productSkus", skus), invalidateAll);
+        lenient().when(job.getId()).thenReturn(id);
+        lenient().when(job.getPropertyNames()).thenReturn(properties.keySet());
+        lenient().when(job.getProperty(anyString(), any(Class.class)))
+                .thenAnswer(invocation -> properties.get(invocation.<String>getArgument(0)));
+        lenient().when(job.getProperty(InvalidationJobConsumer.PROPERTY_INVALIDATE_ALL, false)).thenReturn(invalidateAll);
+    }
+}
@@ -0,0 +1,42 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationMessageTest {
+
+    @Test
+    void testJsonRoundTrip() throws IOException {
+        InvalidationMessage message = new InvalidationMessage("publish1/1", 42, "productSkus", new String[] { "VA01", "V\"A02" },
+                Arrays.asList("\"sku\":\\s*\"(VA01)\""));
+
+        InvalidationMessage parsed = InvalidationMessage.fromJson(message.toJson());
+
+        assertEquals("publish1/1", parsed.getOrigin());
+        assertEquals(42, parsed.getSequence());
+        assertEquals("productSkus", parsed.getInvalidationType());
+        assertArrayEquals(new String[] { "VA01", "V\"A02" }, parsed.getIdentifiers());
+        assertEquals(message.getPatterns(), parsed.getPatterns());
+        assertEquals(message.getKey(), parsed.getKey());
+    }
+
+    @Test
+    void testKeyIdentifiesOriginAndSequence() {
+        InvalidationMessage message = new InvalidationMessage("a", 1, "productSkus", new String[] { "VA01" }, null);
+
+        assertEquals(message.getKey(), new InvalidationMessage("a", 1, "categoryUids", null, null).getKey());
+        assertNotEquals(message.getKey(), new InvalidationMessage("a", 2, "productSkus", new String[] { "VA01" }, null).getKey());
+        assertNotEquals(message.getKey(), new InvalidationMessage("b", 1, "productSkus", new String[] { "VA01" }, null).getKey());
+    }
+
+    @Test
+    void testInvalidJson() {
+        assertThrows(IOException.class, () -> InvalidationMessage.fromJson("{\"sequence\":1}"));
+        assertThrows(IOException.class, () -> InvalidationMessage.fromJson("[]"));
+        assertThrows(IOException.class, () -> InvalidationMessage.fromJson("{\"origin\":"));
+    }
+}
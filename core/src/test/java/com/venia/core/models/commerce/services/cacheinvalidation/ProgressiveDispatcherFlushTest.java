@@ -0,0 +1,124 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(AemContextExtension.class)
+public class ProgressiveDispatcherFlushTest {
+
+    private static final String STORE_PATH = "/content/venia/us/en";
+    private static final List<String> HANDLES = Arrays.asList(STORE_PATH + ".html", STORE_PATH + "/products.html",
+            STORE_PATH + "/products/category-page", STORE_PATH + "/products/product-page", STORE_PATH + "/about");
+
+    private final AemContext context = new AemContext();
+    private final List<String> posted = new CopyOnWriteArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(HANDLES.size());
+    private ProgressiveDispatcherFlush.Configuration configuration;
+    private ProgressiveDispatcherFlush flush;
+
+    @BeforeEach
+    void setUp() {
+        context.create().page(STORE_PATH);
+        context.create().page(STORE_PATH + "/products");
+        context.create().page(STORE_PATH + "/products/category-page");
+        context.create().page(STORE_PATH + "/products/product-page");
+        context.create().page(STORE_PATH + "/products/product-page/details");
+        context.create().page(STORE_PATH + "/about");
+
+        configuration = mock(ProgressiveDispatcherFlush.Configuration.class);
+        when(configuration.enabled()).thenReturn(true);
+        when(configuration.windowSeconds()).thenReturn(0L);
+        when(configuration.requestsPerSecond()).thenReturn(1000);
+        when(configuration.subtreeDepth()).thenReturn(2);
+        when(configuration.dispatcherBaseUrl()).thenReturn("http://dispatcher:80/");
+        flush = new ProgressiveDispatcherFlush() {
+            @Override
+            protected int post(String url, String handle) throws IOException {
+                posted.add(url + " " + handle);
+                done.countDown();
+                return 200;
+            }
+        };
+        flush.activate(configuration);
+    }
+
+    @AfterEach
+    void tearDown() {
+        flush.deactivate();
+    }
+
+    @Test
+    void testSplitsStoreIntoSubtrees() {
+        assertEquals(HANDLES, flush.getHandles(context.resourceResolver(), STORE_PATH));
+    }
+
+    @Test
+    void testFlushesSubtreesInOrder() throws InterruptedException {
+        assertEquals(HANDLES, flush.flush(STORE_PATH, context.resourceResolver()));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("http://dispatcher:80/dispatcher/invalidate.cache " + STORE_PATH + ".html", posted.get(0));
+        assertEquals(HANDLES.size(), posted.size());
+        // the last request is posted before its scheduled task completes
+        assertEquals(0, pendingAfter(0));
+    }
+
+    @Test
+    void testRestartsPendingFlush() {
+        when(configuration.windowSeconds()).thenReturn(3600L);
+
+        flush.flush(STORE_PATH, context.resourceResolver());
+        assertEquals(HANDLES.size() - 1, pendingAfterFirstFlush());
+        flush.flush(STORE_PATH, context.resourceResolver());
+
+        assertEquals(HANDLES.size() - 1, pendingAfterFirstFlush());
+    }
+
+    @Test
+    void testDryRunDoesNotFlush() {
+        when(configuration.windowSeconds()).thenReturn(3600L);
+
+        assertEquals(HANDLES, DryRun.run(() -> flush.flush(STORE_PATH, context.resourceResolver())));
+
+        assertEquals(0, flush.getPending(STORE_PATH));
+        assertTrue(posted.isEmpty());
+    }
+
+    @Test
+    void testDisabledAndUnknownStore() {
+        assertEquals(Collections.emptyList(), flush.flush("/content/venia/missing", context.resourceResolver()));
+        when(configuration.enabled()).thenReturn(false);
+        assertEquals(Collections.emptyList(), flush.flush(STORE_PATH, context.resourceResolver()));
+        assertTrue(posted.isEmpty());
+    }
+
+    private int pendingAfterFirstFlush() {
+        // the root handle is flushed immediately, the other subtrees are spread over the window
+        return pendingAfter(HANDLES.size() - 1);
+    }
+
+    private int pendingAfter(int expected) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flush.getPending(STORE_PATH) > expected && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        return flush.getPending(STORE_PATH);
+    }
+}
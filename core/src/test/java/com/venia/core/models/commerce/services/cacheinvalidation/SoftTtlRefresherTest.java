@@ -0,0 +1,164 @@
+package com.venia.core.models.commerce.services.cacheinvalidation;
+
+import com.adobe.cq.commerce.graphql.client.GraphqlClient;
+import com.day.cq.contentsync.handler.util.RequestResponseFactory;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.osgi.service.event.Event;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SoftTtlRefresherTest {
+
+    private static final String STORE_PATH = "/content/venia/us/en";
+    private static final String PRODUCT_PAGE = STORE_PATH + "/products/product-page.html/sku1.html";
+    private static final String CATEGORY_PAGE = STORE_PATH + "/products/category-page.html/men.html";
+
+    private final GraphqlClient graphqlClient = mock(GraphqlClient.class);
+    private final ResourceResolverFactory resolverFactory = mock(ResourceResolverFactory.class);
+    private final SlingRequestProcessor requestProcessor = mock(SlingRequestProcessor.class);
+    private final RequestResponseFactory requestResponseFactory = mock(RequestResponseFactory.class);
+    private final ResourceResolver resolver = mock(ResourceResolver.class);
+    private SoftTtlRefresher.Configuration configuration;
+    private SoftTtlRefresher refresher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        configuration = mock(SoftTtlRefresher.Configuration.class);
+        when(configuration.enabled()).thenReturn(true);
+        when(configuration.ttlSeconds()).thenReturn(3600L);
+        when(configuration.refreshAheadSeconds()).thenReturn(300L);
+        when(configuration.minHits()).thenReturn(2);
+        when(configuration.maxTracked()).thenReturn(100);
+        when(configuration.maxRefreshes()).thenReturn(100);
+        refresher = new SoftTtlRefresher();
+        refresher.activate(configuration);
+        refresher.bindGraphqlClient(graphqlClient);
+        FieldUtils.writeField(refresher, "resolverFactory", resolverFactory, true);
+        FieldUtils.writeField(refresher, "requestProcessor", requestProcessor, true);
+        FieldUtils.writeField(refresher, "requestResponseFactory", requestResponseFactory, true);
+        lenient().when(resolverFactory.getServiceResourceResolver(anyMap())).thenReturn(resolver);
+        lenient().when(requestResponseFactory.createRequest(eq("GET"), anyString())).thenReturn(mock(HttpServletRequest.class));
+        lenient().when(requestResponseFactory.createResponse(any())).thenReturn(mock(HttpServletResponse.class));
+    }
+
+    @Test
+    void testRefreshesHotEntriesBeforeTheyExpire() {
+        render(3, CATEGORY_PAGE, Arrays.asList("sku1", "sku2"), Collections.singletonList("uid1"));
+        render(1, PRODUCT_PAGE, Collections.singletonList("sku3"), Collections.emptyList());
+        long now = System.currentTimeMillis();
+
+        assertTrue(refresher.collectDue(now).paths.isEmpty());
+        assertTrue(refresher.collectDue(now + 3_200_000L).paths.isEmpty());
+
+        SoftTtlRefresher.Refresh due = refresher.collectDue(now + 3_400_000L);
+        assertEquals(Arrays.asList("sku1", "sku2"), due.skus);
+        assertEquals(Collections.singletonList("uid1"), due.categoryUids);
+        assertEquals(Collections.singleton(CATEGORY_PAGE), due.paths);
+        // the refreshed and the cold entry are not tracked anymore
+        assertEquals(1, refresher.size());
+        assertTrue(refresher.collectDue(now + 3_400_000L).paths.isEmpty());
+        refresher.collectDue(now + 3_700_000L);
+        assertEquals(0, refresher.size());
+    }
+
+    @Test
+    void testTracksMostRecentPathsPerIdentifier() {
+        for (int i = 0; i <= SoftTtlRefresher.MAX_PATHS_PER_IDENTIFIER; i++) {
+            render(1, STORE_PATH + "/page" + i + ".html", Collections.singletonList("sku1"), Collections.emptyList());
+        }
+
+        SoftTtlRefresher.Refresh due = refresher.collectDue(System.currentTimeMillis() + 3_400_000L);
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList(STORE_PATH + "/page1.html", STORE_PATH + "/page2.html",
+                STORE_PATH + "/page3.html")), due.paths);
+    }
+
+    @Test
+    void testInvalidationsResetTrackedEntries() {
+        render(3, CATEGORY_PAGE, Arrays.asList("sku1", "uid1"), Collections.singletonList("uid1"));
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(InvalidationEvents.PROPERTY_INVALIDATION_TYPE, "productSkus");
+        properties.put(InvalidationEvents.PROPERTY_IDENTIFIERS, new String[] { "sku1", "uid1" });
+        refresher.handleEvent(new Event(InvalidationEvents.topic("productSkus"), properties));
+
+        SoftTtlRefresher.Refresh due = refresher.collectDue(System.currentTimeMillis() + 3_400_000L);
+        assertTrue(due.skus.isEmpty());
+        assertEquals(Collections.singletonList("uid1"), due.categoryUids);
+    }
+
+    @Test
+    void testLimitsRefreshesToHottestEntries() {
+        when(configuration.maxRefreshes()).thenReturn(1);
+        render(3, PRODUCT_PAGE, Collections.singletonList("sku1"), Collections.emptyList());
+        render(4, CATEGORY_PAGE, Collections.singletonList("sku2"), Collections.emptyList());
+
+        SoftTtlRefresher.Refresh due = refresher.collectDue(System.currentTimeMillis() + 3_400_000L);
+
+        assertEquals(Collections.singletonList("sku2"), due.skus);
+        assertEquals(Collections.singleton(CATEGORY_PAGE), due.paths);
+        assertEquals(1, refresher.size());
+    }
+
+    @Test
+    void testRunInvalidatesGraphqlEntriesAndRendersTrackedPages() throws Exception {
+        when(configuration.ttlSeconds()).thenReturn(60L);
+        when(configuration.refreshAheadSeconds()).thenReturn(60L);
+        render(3, CATEGORY_PAGE, Collections.singletonList("sku1"), Collections.emptyList());
+
+        refresher.run();
+
+        List<String> patterns = InvalidationBatches.patterns(IdentifierPattern.SKU_FIELD, new String[] { "sku1" },
+                InvalidationBatches.DEFAULT_CHUNK_SIZE);
+        InOrder inOrder = inOrder(graphqlClient, requestResponseFactory, requestProcessor);
+        inOrder.verify(graphqlClient).invalidateCache(isNull(), isNull(), eq(patterns.toArray(new String[0])));
+        inOrder.verify(requestResponseFactory).createRequest("GET", CATEGORY_PAGE);
+        inOrder.verify(requestProcessor).processRequest(any(), any(), eq(resolver));
+        verify(resolver).close();
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        when(configuration.enabled()).thenReturn(false);
+        when(configuration.refreshAheadSeconds()).thenReturn(3600L);
+        render(3, CATEGORY_PAGE, Collections.singletonList("sku1"), Collections.emptyList());
+
+        refresher.run();
+
+        assertEquals(0, refresher.size());
+        verify(graphqlClient, never()).invalidateCache(any(), any(), any());
+        verify(requestProcessor, never()).processRequest(any(), any(), any());
+    }
+
+    private void render(int times, String requestPath, List<String> skus, List<String> uids) {
+        for (int i = 0; i < times; i++) {
+            refresher.recordRendered(STORE_PATH, requestPath, skus, uids);
+        }
+    }
+}
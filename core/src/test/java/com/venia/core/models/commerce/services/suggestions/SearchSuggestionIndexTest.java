@@ -0,0 +1,206 @@
+package com.venia.core.models.commerce.services.suggestions;
+
+import com.adobe.cq.commerce.graphql.client.GraphqlClient;
+import com.adobe.cq.commerce.graphql.client.GraphqlRequest;
+import com.adobe.cq.commerce.graphql.client.GraphqlResponse;
+import com.adobe.cq.commerce.graphql.client.RequestOptions;
+import com.adobe.cq.commerce.magento.graphql.Products;
+import com.adobe.cq.commerce.magento.graphql.Query;
+import com.adobe.cq.commerce.magento.graphql.SearchResultPageInfo;
+import com.adobe.cq.commerce.magento.graphql.SimpleProduct;
+import com.adobe.cq.commerce.magento.graphql.gson.Error;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationEvents;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.event.Event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchSuggestionIndexTest {
+
+    private final GraphqlClient graphqlClient = mock(GraphqlClient.class);
+    private final SearchSuggestionIndex.Configuration configuration = mock(SearchSuggestionIndex.Configuration.class);
+    private final SearchSuggestionIndex index = spy(new SearchSuggestionIndex());
+
+    @BeforeEach
+    void setUp() throws IllegalAccessException {
+        when(configuration.storeView()).thenReturn("default");
+        when(configuration.pageSize()).thenReturn(2);
+        when(configuration.maxPages()).thenReturn(10);
+        FieldUtils.writeField(index, "graphqlClient", graphqlClient, true);
+        // the client is mocked, the responses need no deserializer
+        doReturn(new RequestOptions()).when(index).createRequestOptions();
+        // no sweep on activation, the tests build the index themselves
+        index.activate(configuration);
+        when(configuration.enabled()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.deactivate();
+    }
+
+    @Test
+    void testRebuildSweepsAllPages() {
+        GraphqlResponse<Query, Error> first = response(2, product("VT01", "Silver Amor Bangle Set"), product("VSK02", "Jillian Top"));
+        GraphqlResponse<Query, Error> second = response(2, product("VSW03", "Sweater Dress"));
+        when(graphqlClient.<Query, Error>execute(any(GraphqlRequest.class), eq(Query.class), eq(Error.class), any(RequestOptions.class)))
+                .thenReturn(first, second);
+
+        index.rebuild();
+
+        assertEquals(3, index.size());
+        assertEquals(Collections.singletonList("VSW03"), skus(index.suggest("dress", 10)));
+        verify(graphqlClient, times(2)).execute(any(GraphqlRequest.class), eq(Query.class), eq(Error.class),
+                any(RequestOptions.class));
+    }
+
+    @Test
+    void testFailedSweepKeepsIndex() {
+        GraphqlResponse<Query, Error> sweep = response(1, product("VT01", "Silver Amor Bangle Set"));
+        when(graphqlClient.<Query, Error>execute(any(GraphqlRequest.class), eq(Query.class), eq(Error.class), any(RequestOptions.class)))
+                .thenReturn(sweep)
+                .thenThrow(new IllegalStateException("backend unavailable"));
+        index.rebuild();
+
+        index.rebuild();
+
+        assertEquals(Collections.singletonList("VT01"), skus(index.suggest("silver", 10)));
+    }
+
+    @Test
+    void testRefreshReplacesAndRemovesProducts() {
+        GraphqlResponse<Query, Error> sweep = response(1, product("VT01", "Silver Amor Bangle Set"), product("VSK02", "Jillian Top"));
+        GraphqlResponse<Query, Error> refresh = response(1, product("VT01", "Gold Amor Bangle Set"));
+        when(graphqlClient.<Query, Error>execute(any(GraphqlRequest.class), eq(Query.class), eq(Error.class), any(RequestOptions.class)))
+                .thenReturn(sweep, refresh);
+        index.rebuild();
+
+        index.refresh(Arrays.asList("VT01", "VSK02"));
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList("VT01"), skus(index.suggest("gold", 10)));
+        assertTrue(index.suggest("jill", 10).isEmpty());
+    }
+
+    @Test
+    void testBuildsQueries() {
+        String sweep = SearchSuggestionIndex.buildSweepQuery(200, 3);
+        assertTrue(sweep.contains("search:\"\""));
+        assertTrue(sweep.contains("currentPage:3"));
+        assertTrue(sweep.contains("items{__typename,sku,name,url_key}"));
+
+        String products = SearchSuggestionIndex.buildProductsQuery(Arrays.asList("VT01", "V\"02"));
+        assertTrue(products.contains("sku:{in:[\"VT01\",\"V\\\"02\"]}"));
+        assertTrue(products.contains("pageSize:2"));
+    }
+
+    @Test
+    void testProductInvalidationRefreshesIndex() {
+        index.handleEvent(event("productSkus", "VT01"));
+
+        verify(index, timeout(5000)).refresh(Collections.singletonList("VT01"));
+    }
+
+    @Test
+    void testCategoryInvalidationRefreshesProductsOfCategory() throws InterruptedException {
+        GraphqlResponse<Query, Error> sweep = response(1, product("VT01", "Silver Amor Bangle Set"));
+        GraphqlResponse<Query, Error> category = response(1, product("VSW03", "Sweater Dress"));
+        when(graphqlClient.<Query, Error>execute(any(GraphqlRequest.class), eq(Query.class), eq(Error.class), any(RequestOptions.class)))
+                .thenReturn(sweep, category);
+        index.rebuild();
+
+        index.handleEvent(event("categoryUids", "uid1"));
+
+        verify(index, timeout(5000)).refreshCategories(Collections.singletonList("uid1"));
+        // the refresh runs in the background, wait until it updated the index
+        for (long deadline = System.currentTimeMillis() + 5000; index.size() < 2 && System.currentTimeMillis() < deadline;) {
+            Thread.sleep(10);
+        }
+        verify(index, times(1)).rebuild();
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList("VSW03"), skus(index.suggest("dress", 10)));
+        assertEquals(Collections.singletonList("VT01"), skus(index.suggest("silver", 10)));
+    }
+
+    @Test
+    void testCollapsesQueuedRebuilds() throws Exception {
+        doNothing().when(index).rebuild();
+        CountDownLatch busy = new CountDownLatch(1);
+        ((ExecutorService) FieldUtils.readField(index, "executor", true)).execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        index.scheduleRebuild();
+        index.run();
+        index.scheduleRebuild();
+        busy.countDown();
+
+        verify(index, timeout(5000)).rebuild();
+        Thread.sleep(100);
+        verify(index, times(1)).rebuild();
+    }
+
+    @Test
+    void testDisabledByDefault() throws NoSuchMethodException {
+        assertEquals(false, SearchSuggestionIndex.Configuration.class.getMethod("enabled").getDefaultValue());
+    }
+
+    @Test
+    void testIndexesConfiguredStoreViewOnly() {
+        assertTrue(index.isIndexed("default"));
+        assertFalse(index.isIndexed("fr_fr"));
+        assertFalse(index.isIndexed(null));
+        when(configuration.enabled()).thenReturn(false);
+        assertFalse(index.isIndexed("default"));
+    }
+
+    private static Event event(String invalidationType, String... identifiers) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(InvalidationEvents.PROPERTY_INVALIDATION_TYPE, invalidationType);
+        properties.put(InvalidationEvents.PROPERTY_IDENTIFIERS, identifiers);
+        return new Event(InvalidationEvents.topic(invalidationType), properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GraphqlResponse<Query, Error> response(int totalPages, SimpleProduct... products) {
+        GraphqlResponse<Query, Error> response = mock(GraphqlResponse.class);
+        when(response.getData()).thenReturn(new Query().setProducts(new Products()
+                .setItems(Arrays.asList(products))
+                .setPageInfo(new SearchResultPageInfo().setTotalPages(totalPages))));
+        return response;
+    }
+
+    private static SimpleProduct product(String sku, String name) {
+        return new SimpleProduct().setSku(sku).setName(name).setUrlKey(sku.toLowerCase());
+    }
+
+    private static List<String> skus(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getSku).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,89 @@
+package com.venia.core.models.commerce.services.suggestions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionTrieTest {
+
+    private SuggestionTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = SuggestionTrie.build(Arrays.asList(
+                new Suggestion("VT01", "Silver Amor Bangle Set", "silver-amor-bangle-set"),
+                new Suggestion("VSK02", "Jillian Top", "jillian-top"),
+                new Suggestion("VSW03", "Sweater Dress", "sweater-dress")));
+    }
+
+    @Test
+    void testPrefixOfName() {
+        assertEquals(Arrays.asList("VSK02"), skus(trie.suggest("Jill", 10)));
+    }
+
+    @Test
+    void testPrefixOfWord() {
+        assertEquals(Arrays.asList("VT01"), skus(trie.suggest("bang", 10)));
+        assertEquals(Arrays.asList("VSW03"), skus(trie.suggest("dre", 10)));
+    }
+
+    @Test
+    void testPrefixOfSku() {
+        assertEquals(Arrays.asList("VSK02", "VSW03"), skus(trie.suggest("vs", 10)));
+    }
+
+    @Test
+    void testTypo() {
+        assertEquals(Arrays.asList("VSW03"), skus(trie.suggest("sweatr", 10)));
+        assertTrue(skus(trie.suggest("jilian", 10)).contains("VSK02"));
+        assertTrue(skus(trie.suggest("bnagle", 10)).isEmpty());
+    }
+
+    @Test
+    void testLimitAndEmptyQuery() {
+        assertEquals(1, trie.suggest("v", 1).size());
+        assertTrue(trie.suggest("", 10).isEmpty());
+        assertTrue(trie.suggest(null, 10).isEmpty());
+        assertTrue(trie.suggest("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void testUpdateReplacesSuggestions() {
+        Suggestion top = new Suggestion("VSK02", "Jillian Top", "jillian-top");
+        SuggestionTrie base = SuggestionTrie.build(Arrays.asList(
+                new Suggestion("VT01", "Silver Amor Bangle Set", "silver-amor-bangle-set"), top));
+
+        SuggestionTrie updated = base.update(Collections.singletonList(top),
+                Collections.singletonList(new Suggestion("VSK02", "Jillian Shirt", "jillian-shirt")));
+
+        assertEquals(2, updated.size());
+        assertEquals(Arrays.asList("VSK02"), skus(updated.suggest("shirt", 10)));
+        assertTrue(updated.suggest("top", 10).isEmpty());
+        assertEquals(Arrays.asList("VT01"), skus(updated.suggest("silver", 10)));
+        // the trie it was updated from is not changed
+        assertEquals(Arrays.asList("VSK02"), skus(base.suggest("top", 10)));
+        assertTrue(base.suggest("shirt", 10).isEmpty());
+    }
+
+    @Test
+    void testUpdateRemovesSuggestions() {
+        Suggestion dress = new Suggestion("VSW03", "Sweater Dress", "sweater-dress");
+        SuggestionTrie base = SuggestionTrie.build(Collections.singletonList(dress));
+
+        SuggestionTrie updated = base.update(Collections.singletonList(dress), Collections.emptyList());
+
+        assertEquals(0, updated.size());
+        assertTrue(updated.suggest("sweater", 10).isEmpty());
+        assertTrue(updated.suggest("vsw", 10).isEmpty());
+    }
+
+    private static List<String> skus(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getSku).collect(Collectors.toList());
+    }
+}
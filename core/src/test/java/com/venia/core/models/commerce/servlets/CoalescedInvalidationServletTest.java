@@ -0,0 +1,162 @@
+package com.venia.core.models.commerce.servlets;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+public class CoalescedInvalidationServletTest {
+
+    private final AemContext context = new AemContext();
+
+    @Mock
+    private JobManager jobManager;
+
+    @Mock
+    private Job job;
+
+    @Mock
+    private Session session;
+
+    @InjectMocks
+    private CoalescedInvalidationServlet servlet;
+
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws RepositoryException {
+        lenient().when(session.hasPermission("/var/cif/cacheinvalidation", Session.ACTION_ADD_NODE)).thenReturn(true);
+        context.registerAdapter(ResourceResolver.class, Session.class, session);
+        request = context.request();
+        response = context.response();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testQueuesRequest() throws IOException {
+        request.setMethod("POST");
+        request.setContent(("{\"storePath\":\"/content/venia/us/en\",\"invalidateAll\":true,"
+                + "\"productSkus\":[\"sku1\",\"sku2\"],\"categoryUids\":[\"uid1\"]}").getBytes(StandardCharsets.UTF_8));
+        when(jobManager.addJob(eq("com/venia/commerce/cacheinvalidation/request/content_venia_us_en"), anyMap())).thenReturn(job);
+        when(job.getId()).thenReturn("2026/10/19/job-1");
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_ACCEPTED, response.getStatus());
+        assertTrue(response.getOutputAsString().contains("\"jobId\":\"2026/10/19/job-1\""));
+        ArgumentCaptor<Map<String, Object>> properties = ArgumentCaptor.forClass(Map.class);
+        verify(jobManager).addJob(eq("com/venia/commerce/cacheinvalidation/request/content_venia_us_en"), properties.capture());
+        assertEquals("/content/venia/us/en", properties.getValue().get("storePath"));
+        assertEquals(true, properties.getValue().get("invalidateAll"));
+        assertArrayEquals(new String[] { "sku1", "sku2" }, (String[]) properties.getValue().get("parameter.productSkus"));
+        assertArrayEquals(new String[] { "uid1" }, (String[]) properties.getValue().get("parameter.categoryUids"));
+    }
+
+    @Test
+    void testRejectsMissingStorePath() throws IOException {
+        request.setMethod("POST");
+        request.setContent("{\"productSkus\":[\"sku1\"]}".getBytes(StandardCharsets.UTF_8));
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+        verify(jobManager, never()).addJob(anyString(), any());
+    }
+
+    @Test
+    void testRejectsUnauthorizedCaller() throws IOException, RepositoryException {
+        request.setMethod("POST");
+        request.setContent("{\"storePath\":\"/content/venia/us/en\"}".getBytes(StandardCharsets.UTF_8));
+        when(session.hasPermission("/var/cif/cacheinvalidation", Session.ACTION_ADD_NODE)).thenReturn(false);
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        verify(jobManager, never()).addJob(anyString(), any());
+    }
+
+    @Test
+    void testRejectsInvalidJson() throws IOException {
+        request.setMethod("POST");
+        request.setContent("{storePath".getBytes(StandardCharsets.UTF_8));
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+    }
+
+    @Test
+    void testQueueUnavailable() throws IOException {
+        request.setMethod("POST");
+        request.setContent("{\"storePath\":\"/content/venia/us/en\"}".getBytes(StandardCharsets.UTF_8));
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+    }
+
+    @Test
+    void testGetJobState() throws IOException {
+        request.setParameterMap(Collections.singletonMap("jobId", "2026/10/19/job-1"));
+        when(jobManager.getJobById("2026/10/19/job-1")).thenReturn(job);
+        when(job.getId()).thenReturn("2026/10/19/job-1");
+        when(job.getJobState()).thenReturn(Job.JobState.QUEUED);
+        when(job.getRetryCount()).thenReturn(2);
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"jobId\":\"2026/10/19/job-1\",\"status\":\"QUEUED\",\"retries\":2}", response.getOutputAsString());
+    }
+
+    @Test
+    void testGetJobStateRejectsUnauthorizedCaller() throws IOException, RepositoryException {
+        request.setParameterMap(Collections.singletonMap("jobId", "2026/10/19/job-1"));
+        when(session.hasPermission("/var/cif/cacheinvalidation", Session.ACTION_ADD_NODE)).thenReturn(false);
+
+        servlet.doGet(request, response);
+
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        verify(jobManager, never()).getJobById(anyString());
+    }
+
+    @Test
+    void testGetUnknownJob() throws IOException {
+        request.setParameterMap(Collections.singletonMap("jobId", "unknown"));
+
+        servlet.doGet(request, response);
+
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, response.getStatus());
+    }
+}
@@ -0,0 +1,72 @@
+package com.venia.core.models.commerce.servlets;
+
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationAuditLog;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+public class InvalidationAuditServletTest {
+
+    private final AemContext context = new AemContext();
+
+    @Mock
+    private Session session;
+
+    @Spy
+    private InvalidationAuditLog auditLog = new InvalidationAuditLog();
+
+    @InjectMocks
+    private InvalidationAuditServlet servlet;
+
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        context.registerAdapter(ResourceResolver.class, Session.class, session);
+        request = context.request();
+        response = context.response();
+    }
+
+    @Test
+    void testServesRecords() throws IOException, RepositoryException {
+        when(session.hasPermission("/var/cif/cacheinvalidation", Session.ACTION_ADD_NODE)).thenReturn(true);
+        InvalidationAuditLog.Record record = InvalidationAuditLog.start("productSkus", "getPathsToInvalidate", "/content/venia/us/en", 2);
+        record.countGraphqlRequest(() -> null);
+        InvalidationAuditLog.finish(auditLog, record);
+        request.setParameterMap(Collections.singletonMap("limit", "1"));
+
+        servlet.doGet(request, response);
+
+        String json = response.getOutputAsString();
+        assertTrue(json.contains("\"invalidationType\":\"productSkus\""));
+        assertTrue(json.contains("\"graphqlRequests\":1,\"graphqlErrors\":0"));
+    }
+
+    @Test
+    void testRejectsUnauthorizedCaller() throws IOException {
+        servlet.doGet(request, response);
+
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+    }
+}
@@ -0,0 +1,105 @@
+package com.venia.core.models.commerce.servlets;
+
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationImpactEstimator;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+public class InvalidationDryRunServletTest {
+
+    private final AemContext context = new AemContext();
+
+    @Mock
+    private InvalidationImpactEstimator estimator;
+
+    @Mock
+    private Session session;
+
+    @InjectMocks
+    private InvalidationDryRunServlet servlet;
+
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws RepositoryException {
+        lenient().when(session.hasPermission("/var/cif/cacheinvalidation", Session.ACTION_ADD_NODE)).thenReturn(true);
+        context.registerAdapter(ResourceResolver.class, Session.class, session);
+        request = context.request();
+        request.setMethod("POST");
+        response = context.response();
+    }
+
+    @Test
+    void testWritesImpact() throws IOException {
+        request.setContent("{\"storePath\":\"/content/venia/us/en\",\"productSkus\":[\"VA01\"]}".getBytes(StandardCharsets.UTF_8));
+        request.setParameterMap(Collections.singletonMap("sample", "5"));
+        InvalidationImpactEstimator.Impact impact = mock(InvalidationImpactEstimator.Impact.class);
+        when(impact.getInvalidationType()).thenReturn("productSkus");
+        when(impact.getIdentifiers()).thenReturn(1);
+        when(impact.getPatterns()).thenReturn(1);
+        when(impact.getPatternSample()).thenReturn(Collections.singletonList("pattern"));
+        when(impact.getPaths()).thenReturn(2);
+        when(impact.getPathSample()).thenReturn(Arrays.asList("/a.html", "/b.html"));
+        when(estimator.estimate(any(), eq("/content/venia/us/en"), anyMap(), eq(5))).thenReturn(Collections.singletonList(impact));
+
+        servlet.doPost(request, response);
+
+        String json = response.getOutputAsString();
+        assertTrue(json.contains("\"invalidationType\":\"productSkus\""), json);
+        assertTrue(json.contains("\"paths\":2,\"pathSample\":[\"/a.html\",\"/b.html\"]"), json);
+        assertTrue(json.contains("\"invalidateAll\":false"), json);
+    }
+
+    @Test
+    void testRejectsMissingStorePath() throws IOException {
+        request.setContent("{\"productSkus\":[\"VA01\"]}".getBytes(StandardCharsets.UTF_8));
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+        verify(estimator, never()).estimate(any(), anyString(), anyMap(), anyInt());
+    }
+
+    @Test
+    void testRejectsUnauthorizedCaller() throws IOException, RepositoryException {
+        request.setContent("{\"storePath\":\"/content/venia/us/en\"}".getBytes(StandardCharsets.UTF_8));
+        when(session.hasPermission("/var/cif/cacheinvalidation", Session.ACTION_ADD_NODE)).thenReturn(false);
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        verify(estimator, never()).estimate(any(), anyString(), anyMap(), anyInt());
+    }
+}
@@ -0,0 +1,89 @@
+package com.venia.core.models.commerce.servlets;
+
+import com.venia.core.models.commerce.services.cacheinvalidation.HttpInvalidationTransport;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationDistributor;
+import com.venia.core.models.commerce.services.cacheinvalidation.InvalidationMessage;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+public class InvalidationFanoutServletTest {
+
+    private final AemContext context = new AemContext();
+
+    @Mock
+    private HttpInvalidationTransport transport;
+
+    @Mock
+    private InvalidationDistributor distributor;
+
+    @InjectMocks
+    private InvalidationFanoutServlet servlet;
+
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        request = context.request();
+        request.setMethod("POST");
+        request.setHeader(HttpInvalidationTransport.TOKEN_HEADER, "secret");
+        response = context.response();
+    }
+
+    @Test
+    void testAppliesMessage() throws IOException {
+        InvalidationMessage message = new InvalidationMessage("publish1/1", 1, "productSkus", new String[] { "VA01" },
+                Collections.singletonList("pattern"));
+        request.setContent(message.toJson().getBytes(StandardCharsets.UTF_8));
+        when(transport.isAuthorized("secret")).thenReturn(true);
+        when(distributor.receive(any())).thenReturn(true);
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_ACCEPTED, response.getStatus());
+        ArgumentCaptor<InvalidationMessage> received = ArgumentCaptor.forClass(InvalidationMessage.class);
+        verify(distributor).receive(received.capture());
+        assertEquals(message.getKey(), received.getValue().getKey());
+    }
+
+    @Test
+    void testRejectsUnauthorizedRequests() throws IOException {
+        request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        verify(distributor, never()).receive(any());
+    }
+
+    @Test
+    void testRejectsInvalidMessages() throws IOException {
+        request.setContent("{\"sequence\":1}".getBytes(StandardCharsets.UTF_8));
+        when(transport.isAuthorized("secret")).thenReturn(true);
+
+        servlet.doPost(request, response);
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+    }
+}
@@ -0,0 +1,136 @@
+package com.venia.core.models.commerce.servlets;
+
+import com.venia.core.models.commerce.services.cacheinvalidation.CommerceReferenceIndex;
+import com.venia.core.models.commerce.services.cacheinvalidation.RenderDependencies;
+import com.venia.core.models.commerce.services.cacheinvalidation.SoftTtlRefresher;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.testing.mock.sling.servlet.MockRequestPathInfo;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+public class RenderDependencyFilterTest {
+
+    private final AemContext context = new AemContext();
+
+    @Mock
+    private CommerceReferenceIndex referenceIndex;
+
+    @Mock
+    private SoftTtlRefresher refresher;
+
+    @Mock
+    private FilterChain filterChain;
+
+    @InjectMocks
+    private RenderDependencyFilter filter;
+
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        RenderDependencyFilter.Configuration configuration = mock(RenderDependencyFilter.Configuration.class);
+        when(configuration.enabled()).thenReturn(true);
+        filter.activate(configuration);
+        request = context.request();
+        response = context.response();
+        MockRequestPathInfo pathInfo = context.requestPathInfo();
+        pathInfo.setResourcePath("/content/venia/us/en/products/category-page");
+        pathInfo.setExtension("html");
+        pathInfo.setSuffix("/men.html");
+    }
+
+    @Test
+    void testRecordsDependenciesOfRender() throws Exception {
+        doAnswer(invocation -> {
+            RenderDependencies.recordSku(invocation.getArgument(0), "sku1");
+            RenderDependencies.recordSkus(invocation.getArgument(0), Arrays.asList("sku2", null, ""));
+            RenderDependencies.recordCategory(invocation.getArgument(0), "uid1");
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(referenceIndex).recordRendered(eq("/content/venia/us/en/products/category-page.html/men.html"),
+                eq(new HashSet<>(Arrays.asList("sku1", "sku2"))), eq(Collections.singleton("uid1")));
+        assertNull(request.getAttribute(RenderDependencies.class.getName()));
+    }
+
+    @Test
+    void testDisabledByDefault() throws Exception {
+        RenderDependencyFilter disabled = new RenderDependencyFilter();
+
+        disabled.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(referenceIndex, refresher);
+    }
+
+    @Test
+    void testRecordsRenderForSoftTtlRefresher() throws Exception {
+        when(refresher.isEnabled()).thenReturn(true);
+        doAnswer(invocation -> {
+            RenderDependencies.recordSku(invocation.getArgument(0), "sku1");
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(refresher).recordRendered("/content/venia/us/en", "/content/venia/us/en/products/category-page.html/men.html",
+                Collections.singleton("sku1"), Collections.emptySet());
+    }
+
+    @Test
+    void testSkipsFailedRenders() throws Exception {
+        doAnswer(invocation -> {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        filter.doFilter(request, response, filterChain);
+
+        verifyNoInteractions(referenceIndex);
+    }
+
+    @Test
+    void testSkipsRequestsWithQueryString() throws Exception {
+        request.setQueryString("page=2");
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(referenceIndex);
+    }
+
+    @Test
+    void testGetRequestPath() {
+        context.requestPathInfo().setSelectorString("model");
+        context.requestPathInfo().setSuffix(null);
+        assertEquals("/content/venia/us/en/products/category-page.model.html",
+                RenderDependencyFilter.getRequestPath(request.getRequestPathInfo()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.venia.core.models.commerce.servlets;
+
+import com.adobe.cq.commerce.core.components.services.ComponentsConfiguration;
+import com.venia.core.models.commerce.services.suggestions.SearchSuggestionIndex;
+import com.venia.core.models.commerce.services.suggestions.Suggestion;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+public class SearchSuggestionsServletTest {
+
+    private final AemContext context = new AemContext();
+
+    @Mock
+    private SearchSuggestionIndex suggestionIndex;
+
+    @InjectMocks
+    private SearchSuggestionsServlet servlet;
+
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        context.currentResource(context.create().resource("/content/venia/us/en/search/jcr:content/root/searchresults"));
+        request = context.request();
+        response = context.response();
+    }
+
+    @Test
+    void testServesSuggestionsOfIndexedStore() throws IOException {
+        setStoreView("default");
+        when(suggestionIndex.isIndexed("default")).thenReturn(true);
+        when(suggestionIndex.suggest("jill", SearchSuggestionsServlet.MAX_LIMIT))
+                .thenReturn(Collections.singletonList(new Suggestion("VSK02", "Jillian Top", "jillian-top")));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(SearchSuggestionsServlet.QUERY_PARAMETER, "jill");
+        parameters.put(SearchSuggestionsServlet.LIMIT_PARAMETER, "500");
+        request.setParameterMap(parameters);
+
+        servlet.doGet(request, response);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("application/json", response.getContentType().split(";")[0]);
+        assertEquals("{\"suggestions\":[{\"sku\":\"VSK02\",\"name\":\"Jillian Top\",\"urlKey\":\"jillian-top\"}]}",
+                response.getOutputAsString());
+    }
+
+    @Test
+    void testRejectsStoreThatIsNotIndexed() throws IOException {
+        setStoreView("fr_fr");
+        request.setParameterMap(Collections.singletonMap(SearchSuggestionsServlet.QUERY_PARAMETER, "jill"));
+
+        servlet.doGet(request, response);
+
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, response.getStatus());
+        verify(suggestionIndex, never()).suggest(anyString(), anyInt());
+    }
+
+    private void setStoreView(String storeView) {
+        ComponentsConfiguration configuration = new ComponentsConfiguration(new ValueMapDecorator(
+                Collections.singletonMap(SearchSuggestionsServlet.STORE_VIEW_PROPERTY, storeView)));
+        context.registerAdapter(Resource.class, ComponentsConfiguration.class, configuration);
+    }
+}